@@ -0,0 +1,115 @@
+package chess.benchmarks;
+
+import chess.ChessBoard;
+import chess.FileRank;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.piece.ChessPiece;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Middlegame and endgame positions the benchmarks run over.
+ * Each position is reached by replaying its moves through ChessBoard.move from the initial position.
+ */
+public final class BoardCorpus {
+    public static final String RUY_LOPEZ = "ruyLopez";
+    public static final String QUEENS_GAMBIT = "queensGambit";
+    public static final String NAJDORF = "najdorf";
+    public static final String ENDGAME_12 = "endgame12";
+    public static final String ENDGAME_8 = "endgame8";
+
+    private static final String ENDGAME_PREFIX = "a2a4 c7c5 b1c3 g7g6 g1f3 d7d6 f3g5 h7h6 e2e4 c8h3 g5f7 e8f7 "
+            + "d1e2 h3g2 f1g2 d8e8 a1a3 e8a4 c3a4 e7e6 a4c5 d6c5 e1g1 b7b5 e2b5 c5c4 b5c4 f8a3 f1d1 a3e7 c4e6 f7e6 "
+            + "d2d3 e7c5 g1f1 c5e3 c1e3 h8h7 e3h6 h7h6 f2f3 e6f7 f3f4 h6h2 d1d2 h2g2 d2g2 f7f6 e4e5 f6e6 g2g6 e6f7";
+
+    private static final Map<String, String> GAMES = new HashMap<>();
+
+    static {
+        GAMES.put(RUY_LOPEZ, "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7 f1e1 b7b5 a4b3 d7d6 c2c3 e8g8 "
+                + "h2h3 c6a5 b3c2 c7c5 d2d4 d8c7 b1d2");
+        GAMES.put(QUEENS_GAMBIT, "d2d4 d7d5 c2c4 e7e6 b1c3 g8f6 c1g5 f8e7 e2e3 e8g8 g1f3 b8d7 a1c1 c7c6 f1d3 "
+                + "d5c4 d3c4 f6d5 g5e7 d8e7 e1g1 d5c3 c1c3 e6e5");
+        GAMES.put(NAJDORF, "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6 b1c3 a7a6 c1e3 e7e5 d4b3 c8e6 f2f3 f8e7 "
+                + "d1d2 e8g8 e1c1 b8d7 g2g4 b7b5");
+        GAMES.put(ENDGAME_12, ENDGAME_PREFIX);
+        GAMES.put(ENDGAME_8, ENDGAME_PREFIX + " g6g8 f7g8 c2c3 b8c6 b2b3 c6e5 d3d4 e5f7 f1g2 a7a5 g2f3 g8f8 "
+                + "f4f5 a8b8 f3e2 f7h8 f5f6 b8b3");
+    }
+
+    private BoardCorpus() {
+    }
+
+    /**
+     * Returns a new chess board set up with the specified corpus position.
+     * @param name
+     * @return
+     */
+    public static ChessBoard create(String name) {
+        String game = GAMES.get(name);
+        if (game == null) {
+            throw new IllegalArgumentException("Unknown position: " + name);
+        }
+        ChessBoard chessBoard = new ChessBoard();
+        String turn = ChessBoard.WHITE_KIND;
+        for (String move : game.split(" ")) {
+            if (!chessBoard.move(move.substring(0, 2), move.substring(2, 4), turn)) {
+                throw new IllegalStateException("Illegal corpus move " + move + " in " + name);
+            }
+            turn = sideToMove(chessBoard);
+        }
+        return chessBoard;
+    }
+
+    /**
+     * Returns the kind of the side to move on the chess board.
+     * @param chessBoard
+     * @return
+     */
+    public static String sideToMove(ChessBoard chessBoard) {
+        return chessBoard.getPosition().getSideToMove() == Position.WHITE
+                ? ChessBoard.WHITE_KIND : ChessBoard.BLACK_KIND;
+    }
+
+    /**
+     * Returns the legal moves of the side to move as pairs of moving piece and destination.
+     * @param chessBoard
+     * @param pieces receives the moving piece of each move.
+     * @param targets receives the destination of each move.
+     * @return number of moves.
+     */
+    public static int legalMoves(ChessBoard chessBoard, ChessPiece[] pieces, FileRank[] targets) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = chessBoard.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            pieces[i] = chessBoard.getPiece(Move.from(moves[i]));
+            targets[i] = chessBoard.getFileRank(Move.to(moves[i]));
+        }
+        return count;
+    }
+
+    /**
+     * Returns a quiet move of a piece other than a pawn of the side to move, which can be played back.
+     * @param chessBoard
+     * @return encoded move.
+     */
+    public static int reversibleMove(ChessBoard chessBoard) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = chessBoard.generateLegalMoves(moves);
+        Position position = chessBoard.getPosition();
+        for (int i = 0; i < count; i++) {
+            int type = Position.typeOf(position.pieceAt(Move.from(moves[i])));
+            if (type != Position.PAWN && !Move.isCapture(moves[i]) && !Move.isCastle(moves[i])) {
+                Position after = new Position(position);
+                after.makeMove(moves[i]);
+                //the reverse move must not expose the king of the moving side.
+                if (MoveGenerator.isLegal(after, Move.to(moves[i]), Move.from(moves[i]))) {
+                    return moves[i];
+                }
+            }
+        }
+        throw new IllegalStateException("No reversible move");
+    }
+}
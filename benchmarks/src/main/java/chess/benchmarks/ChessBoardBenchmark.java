@@ -0,0 +1,66 @@
+package chess.benchmarks;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the chess board: validating and playing a move, and enumerating the legal moves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+
+    @Param({BoardCorpus.RUY_LOPEZ, BoardCorpus.QUEENS_GAMBIT, BoardCorpus.NAJDORF,
+            BoardCorpus.ENDGAME_12, BoardCorpus.ENDGAME_8})
+    public String position;
+
+    private ChessBoard chessBoard;
+    private String kind;
+    private String from;
+    private String to;
+    private int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setUp() {
+        chessBoard = BoardCorpus.create(position);
+        kind = BoardCorpus.sideToMove(chessBoard);
+        int move = BoardCorpus.reversibleMove(chessBoard);
+        from = Position.squareName(Move.from(move));
+        to = Position.squareName(Move.to(move));
+    }
+
+    /**
+     * Validates and plays a quiet piece move, then takes it back, so that every invocation starts from the same
+     * position and the undo stack does not grow.
+     */
+    @Benchmark
+    public boolean moveAndBack() {
+        boolean isValid = chessBoard.move(from, to, kind);
+        chessBoard.unmakeMove();
+        return isValid;
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        return chessBoard.generateLegalMoves(kind, moves);
+    }
+}
@@ -0,0 +1,85 @@
+package chess.benchmarks;
+
+import chess.ChessBoard;
+import chess.FileRank;
+import chess.MoveGenerator;
+import chess.piece.ChessPiece;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the move validation of the chess pieces, over every legal move of a corpus position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessPieceBenchmark {
+    private static final List<String> ALL_DIRECTIONS = Arrays.asList("NORTH", "NORTH_EAST", "EAST", "SOUTH_EAST",
+            "SOUTH", "SOUTH_WEST", "WEST", "NORTH_WEST", "LSHAPE");
+
+    @Param({BoardCorpus.RUY_LOPEZ, BoardCorpus.QUEENS_GAMBIT, BoardCorpus.NAJDORF,
+            BoardCorpus.ENDGAME_12, BoardCorpus.ENDGAME_8})
+    public String position;
+
+    private ChessBoard chessBoard;
+    private ChessPiece[] pieces = new ChessPiece[MoveGenerator.MAX_MOVES];
+    private FileRank[] targets = new FileRank[MoveGenerator.MAX_MOVES];
+    private String[] targetNames = new String[MoveGenerator.MAX_MOVES];
+    private int count;
+
+    @Setup
+    public void setUp() {
+        chessBoard = BoardCorpus.create(position);
+        count = BoardCorpus.legalMoves(chessBoard, pieces, targets);
+        for (int i = 0; i < count; i++) {
+            targetNames[i] = targets[i].getFileRankString();
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void getValidMoves(Blackhole blackhole) {
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(pieces[i].getValidMoves(ALL_DIRECTIONS, 8, pieces[i].getCurrentPosition(),
+                    targetNames[i]));
+        }
+    }
+
+    @Benchmark
+    public void isClearPath(Blackhole blackhole) {
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(pieces[i].isClearPath(targetNames[i], targetNames[i]));
+        }
+    }
+
+    @Benchmark
+    public void getIsKingChecked(Blackhole blackhole) {
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(pieces[i].getIsKingChecked(targetNames[i]));
+        }
+    }
+
+    @Benchmark
+    public void validateMove(Blackhole blackhole) {
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(pieces[i].move(targets[i], false));
+        }
+    }
+}
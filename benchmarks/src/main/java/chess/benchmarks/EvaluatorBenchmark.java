@@ -0,0 +1,68 @@
+package chess.benchmarks;
+
+import chess.Position;
+import chess.engine.Engine;
+import chess.engine.Evaluator;
+import chess.engine.MaterialEvaluator;
+import chess.engine.SearchLimits;
+import chess.engine.TaperedEvaluator;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the evaluators against each other: one static evaluation, and a fixed depth search using it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+    private static final int SEARCH_DEPTH = 5;
+
+    @Param({"material", "tapered"})
+    public String evaluatorName;
+
+    @Param({BoardCorpus.RUY_LOPEZ, BoardCorpus.NAJDORF, BoardCorpus.ENDGAME_12})
+    public String position;
+
+    private Evaluator evaluator;
+    private Engine engine;
+    private Position board;
+
+    @Setup
+    public void setUp() {
+        evaluator = "material".equals(evaluatorName) ? new MaterialEvaluator() : new TaperedEvaluator();
+        engine = new Engine(new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES), evaluator);
+        board = BoardCorpus.create(position).getPosition();
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(board);
+    }
+
+    /**
+     * Searches to a fixed depth, whose cost depends on the evaluation speed and on how well it orders the tree.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long search() {
+        engine.getTranspositionTable().clear();
+        return engine.search(board, SearchLimits.depth(SEARCH_DEPTH)).getNodes();
+    }
+}
@@ -0,0 +1,58 @@
+package chess.benchmarks;
+
+import chess.ChessBoard;
+import chess.piece.King;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the check, checkmate and castling queries of the king of the side to move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KingBenchmark {
+
+    @Param({BoardCorpus.RUY_LOPEZ, BoardCorpus.QUEENS_GAMBIT, BoardCorpus.NAJDORF,
+            BoardCorpus.ENDGAME_12, BoardCorpus.ENDGAME_8})
+    public String position;
+
+    private King king;
+    private String castleTarget;
+
+    @Setup
+    public void setUp() {
+        ChessBoard chessBoard = BoardCorpus.create(position);
+        king = chessBoard.getKing(BoardCorpus.sideToMove(chessBoard));
+        castleTarget = ChessBoard.WHITE_KIND.equals(king.getKind()) ? "g1" : "g8";
+    }
+
+    @Benchmark
+    public Boolean identifyCheck() {
+        return king.identifyCheck();
+    }
+
+    @Benchmark
+    public Boolean getIsCheckMate() {
+        return king.getIsCheckMate();
+    }
+
+    @Benchmark
+    public Boolean castleMove() {
+        return king.castleMove(castleTarget, false);
+    }
+}
@@ -0,0 +1,93 @@
+package chess.benchmarks;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.Position;
+import chess.piece.King;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocations of the validate-and-apply path of ChessBoard.move. Run with the GC profiler, which BenchmarkMain
+ * adds, or with -prof gc: gc.alloc.rate.norm is expected to be 0 B/op for every benchmark, the move is taken back
+ * after each invocation so that the undo stack does not grow.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveAllocationBenchmark {
+
+    @Param({BoardCorpus.RUY_LOPEZ, BoardCorpus.NAJDORF, BoardCorpus.ENDGAME_8})
+    public String position;
+
+    private ChessBoard chessBoard;
+    private King king;
+    private String kind;
+    private int color;
+    private int from;
+    private int to;
+    private String fromFileRank;
+    private String toFileRank;
+    private int castleTarget;
+
+    @Setup
+    public void setUp() {
+        chessBoard = BoardCorpus.create(position);
+        kind = BoardCorpus.sideToMove(chessBoard);
+        color = Position.colorOf(kind);
+        king = chessBoard.getKing(kind);
+        int move = BoardCorpus.reversibleMove(chessBoard);
+        from = Move.from(move);
+        to = Move.to(move);
+        fromFileRank = Position.squareName(from);
+        toFileRank = Position.squareName(to);
+        castleTarget = color == Position.WHITE ? Position.square("g1") : Position.square("g8");
+    }
+
+    /**
+     * Validates and plays a move by square indices, then takes it back.
+     */
+    @Benchmark
+    public boolean moveBySquares() {
+        boolean isValid = chessBoard.move(from, to, color);
+        chessBoard.unmakeMove();
+        return isValid;
+    }
+
+    /**
+     * Validates and plays a move with the string based API, then takes it back.
+     */
+    @Benchmark
+    public boolean moveByFileRanks() {
+        boolean isValid = chessBoard.move(fromFileRank, toFileRank, kind);
+        chessBoard.unmakeMove();
+        return isValid;
+    }
+
+    /**
+     * Rejects a move to an occupied square of the same side, which is checked before any move generation.
+     */
+    @Benchmark
+    public boolean rejectMove() {
+        return chessBoard.move(from, from, color);
+    }
+
+    @Benchmark
+    public boolean castleMove() {
+        return king.castleMove(castleTarget, false);
+    }
+}
@@ -0,0 +1,274 @@
+package chess;
+
+/**
+ * Precomputed attack tables of the chess pieces.
+ * Knight, king and pawn attacks are plain lookups by square. Rook and bishop attacks use magic bitboards:
+ * the relevant blockers are multiplied by a magic number so that the top bits index a table of attack sets.
+ * All the tables are generated when the class is loaded.
+ */
+public final class Attacks {
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    //squares strictly between two aligned squares, and the whole line through them.
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_OFFSETS =
+            {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_OFFSETS = {{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, -1}, {-1, 1}};
+
+    //seeds of the pseudo random generator used to find magic numbers, one per rank, that find magics quickly.
+    private static final long[] SEEDS = {728, 10316, 55013, 32803, 12281, 15100, 16645, 255};
+    private static long seed;
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = leaperAttacks(square, KNIGHT_OFFSETS);
+            KING[square] = leaperAttacks(square, KING_OFFSETS);
+            PAWN[Position.WHITE][square] = leaperAttacks(square, new int[][]{{-1, 1}, {1, 1}});
+            PAWN[Position.BLACK][square] = leaperAttacks(square, new int[][]{{-1, -1}, {1, -1}});
+            initMagic(square, ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_TABLE);
+            initMagic(square, BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_TABLE);
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long ends = Position.bit(from) | Position.bit(to);
+                if (from == to) {
+                    continue;
+                } else if ((rookAttacks(from, 0L) & Position.bit(to)) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, Position.bit(to)) & rookAttacks(to, Position.bit(from));
+                    LINE[from][to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | ends;
+                } else if ((bishopAttacks(from, 0L) & Position.bit(to)) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, Position.bit(to)) & bishopAttacks(to, Position.bit(from));
+                    LINE[from][to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | ends;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * Returns the squares attacked by a knight on the specified square.
+     * @param square
+     * @return
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * Returns the squares attacked by a king on the specified square.
+     * @param square
+     * @return
+     */
+    public static long kingAttacks(int square) {
+        return KING[square];
+    }
+
+    /**
+     * Returns the squares attacked by a pawn of the specified color on the specified square.
+     * @param color
+     * @param square
+     * @return
+     */
+    public static long pawnAttacks(int color, int square) {
+        return PAWN[color][square];
+    }
+
+    /**
+     * Returns the squares attacked by a rook on the specified square.
+     * @param square
+     * @param occupied bitboard of the occupied squares.
+     * @return
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[square][(int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    /**
+     * Returns the squares attacked by a bishop on the specified square.
+     * @param square
+     * @param occupied bitboard of the occupied squares.
+     * @return
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[square][(int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square])
+                >>> BISHOP_SHIFT[square])];
+    }
+
+    /**
+     * Returns the squares attacked by a queen on the specified square.
+     * @param square
+     * @param occupied bitboard of the occupied squares.
+     * @return
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares attacked by a piece of the specified type.
+     * @param type piece type.
+     * @param color color of the piece, only relevant to pawns.
+     * @param square
+     * @param occupied bitboard of the occupied squares.
+     * @return
+     */
+    public static long attacks(int type, int color, int square, long occupied) {
+        switch (type) {
+            case Position.PAWN:
+                return PAWN[color][square];
+            case Position.KNIGHT:
+                return KNIGHT[square];
+            case Position.BISHOP:
+                return bishopAttacks(square, occupied);
+            case Position.ROOK:
+                return rookAttacks(square, occupied);
+            case Position.QUEEN:
+                return queenAttacks(square, occupied);
+            default:
+                return KING[square];
+        }
+    }
+
+    /**
+     * Returns the squares strictly between two squares on the same rank, file or diagonal, otherwise an empty set.
+     * @param from
+     * @param to
+     * @return
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Returns the full line(rank, file or diagonal) through two aligned squares, otherwise an empty set.
+     * @param from
+     * @param to
+     * @return
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static long leaperAttacks(int square, int[][] offsets) {
+        long attacks = 0L;
+        int file = Position.fileOf(square);
+        int rank = Position.rankOf(square);
+        for (int[] offset : offsets) {
+            int toFile = file + offset[0];
+            int toRank = rank + offset[1];
+            if (toFile >= 0 && toFile < 8 && toRank >= 0 && toRank < 8) {
+                attacks |= Position.bit(Position.square(toFile, toRank));
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks the rays from a square until a blocker or the edge of the board is reached.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int file = Position.fileOf(square) + direction[0];
+            int rank = Position.rankOf(square) + direction[1];
+            while (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                long bit = Position.bit(Position.square(file, rank));
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Returns the squares whose occupancy affects the attacks of a slider, which excludes the edge of each ray.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int file = Position.fileOf(square) + direction[0];
+            int rank = Position.rankOf(square) + direction[1];
+            while (file + direction[0] >= 0 && file + direction[0] < 8
+                    && rank + direction[1] >= 0 && rank + direction[1] < 8) {
+                mask |= Position.bit(Position.square(file, rank));
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void initMagic(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                  long[][] tables) {
+        long mask = relevantMask(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+
+        //enumerate every subset of the mask.
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] table = new long[size];
+        int[] epoch = new int[size];
+        int shift = 64 - bits;
+        seed = SEEDS[Position.rankOf(square)];
+        for (int attempt = 1; ; attempt++) {
+            long magic = nextRandom() & nextRandom() & nextRandom();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (epoch[index] < attempt) {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = shift;
+                tables[square] = table;
+                return;
+            }
+        }
+    }
+
+    private static long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
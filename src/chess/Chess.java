@@ -1,12 +1,53 @@
 package chess;
 
+import chess.book.OpeningBook;
+import chess.engine.SearchLimits;
+import chess.record.GameJournal;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 /***
  * Main class for the chess game
+ * Usage: Chess [journal file] [engine white|black [milliseconds per move [opening book]]] to let the engine play
+ * one side, and to write the game to a journal from which it is restored when the game is started again.
  * @author ?
  */
 public class Chess {
-    public static void main(String[] args) {
-        ChessGame chessGame = new ChessGame();
-        chessGame.start();
+    private static final long DEFAULT_ENGINE_MILLIS = 1000L;
+    private static final long JOURNAL_GAME_ID = 1L;
+
+    public static void main(String[] args) throws IOException {
+        GameJournal journal = null;
+        if (args.length >= 2 && "journal".equals(args[0])) {
+            journal = GameJournal.open(Paths.get(args[1]));
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        boolean hasEngine = args.length >= 2 && "engine".equals(args[0]);
+        long millis = hasEngine && args.length >= 3 ? Long.parseLong(args[2]) : DEFAULT_ENGINE_MILLIS;
+        ChessGame chessGame = journal != null
+                ? ChessGame.restore(journal, JOURNAL_GAME_ID, SearchLimits.time(millis)) : null;
+        if (chessGame == null) {
+            if (hasEngine) {
+                String engineTurn = "black".equalsIgnoreCase(args[1]) ? ChessBoard.BLACK_KIND : ChessBoard.WHITE_KIND;
+                chessGame = new ChessGame(engineTurn, SearchLimits.time(millis));
+            } else {
+                chessGame = new ChessGame();
+            }
+            if (journal != null) {
+                chessGame.setJournal(journal, JOURNAL_GAME_ID);
+            }
+        }
+        if (hasEngine && args.length >= 4) {
+            chessGame.setOpeningBook(new OpeningBook(Paths.get(args[3])));
+        }
+        try {
+            chessGame.start();
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
     }
 }
@@ -16,8 +16,12 @@ import java.util.Map;
 
 /**
  * Models the chess board of a chess game.
+ * The occupancy of the squares is a mailbox of 64 bytes holding the slot of the chess piece on each square, the
+ * chess pieces being kept in a table of slots, and the fileranks of the squares are views created only when they
+ * are asked for. A promoted piece takes over the slot of its pawn, so the slots are assigned when the board is set
+ * up and moves only copy bytes.
  */
-public class ChessBoard {
+public final class ChessBoard {
     public static final String[] FILES = {"a", "b", "c", "d", "e", "f", "g", "h"};
     public static final String[] RANKS = {"8", "7", "6", "5", "4", "3", "2", "1"};
     private static final String WHITE_SQUARE = "  ";
@@ -25,17 +29,47 @@ public class ChessBoard {
     public static final String WHITE_KIND = "WHITE";
     public static final String BLACK_KIND = "BLACK";
     public static final String[] PROMOTIONS = {"Q","N","B","R"};
+    //promotion symbols by piece type, from Position.KNIGHT.
+    private static final String[] PROMOTION_SYMBOLS = {"N", "B", "R", "Q"};
     private List<ChessPiece> whitePieces = new ArrayList<>();
     private List<ChessPiece> blackPieces = new ArrayList<>();
 
-    private Map<String, FileRank> chessBoard = new HashMap<>();
+    private static final byte EMPTY = -1;
+    private static final int MAX_SLOTS = 127;
+
+    //slot of the chess piece on each square, or EMPTY.
+    private final byte[] mailbox = new byte[64];
+    //chess pieces by slot, including the captured pieces which can be put back by unmakeMove.
+    private ChessPiece[] pieceSlots = new ChessPiece[32];
+    private int slotCount;
+    //views of the squares and the map of the views by name, created when first asked for.
+    private FileRank[] fileRanks;
+    private Map<String, FileRank> chessBoard;
+    //bitboard representation of the chess board, kept in sync with the fileranks.
+    private Position position = new Position();
     private King whiteKing;
     private King blackKing;
+    //move buffer reused by the queries that only need the number of legal moves, created on first use.
+    private int[] moveBuffer;
+    //chess pieces and slots needed to take back the moves on the undo stack of the position, indexed like it.
+    private ChessPiece[] undoMovedPieces = new ChessPiece[INITIAL_UNDO_CAPACITY];
+    private byte[] undoCapturedSlots = new byte[INITIAL_UNDO_CAPACITY];
+    private boolean[] undoWasMoved = new boolean[INITIAL_UNDO_CAPACITY];
+    private static final int INITIAL_UNDO_CAPACITY = 16;
 
     public ChessBoard() {
         initialize();
     }
 
+    /**
+     * Creates a chess board set up from a FEN string.
+     * @param fen FEN string, the move clocks are optional.
+     */
+    public ChessBoard(String fen) {
+        initialize();
+        load(fen);
+    }
+
     /**
      * Display the current chessboard.
      */
@@ -50,8 +84,7 @@ public class ChessBoard {
         //print the board
         for (int rank = 0; rank < RANKS.length; rank++) {
             for (int file = 0; file < FILES.length; file++) {
-                String filerank = FILES[file] + RANKS[rank];
-                Object occupant = chessBoard.get(filerank).getOccupant();
+                Object occupant = getPiece(Position.square(file, RANKS.length - 1 - rank));
                 if (occupant == null) {
                     if (((file) % 2 == 1 && (rank) % 2 == 1) | ((file) % 2 == 0 && (rank) % 2 == 0)) {
                         System.out.print(BLACK_SQUARE + " ");
@@ -72,10 +105,12 @@ public class ChessBoard {
      * Initializes a chess board with chess pieces and their initial positions.
      */
     public void initialize() {
+        clearPieces();
+        position.clear();
         //For each filerank a chess piece is initialized if the chess piece contains the particular filerank as an initial position.
         for (int rank = 0; rank < RANKS.length; rank++) {
             for (int file = 0; file < FILES.length; file++) {
-                String filerank = FILES[file] + RANKS[rank];
+                ChessPiece piece = null;
                 // Initialize special pieces
                 if ("1".equals(RANKS[rank]) | "8".equals(RANKS[rank])) {
                     String kind;
@@ -85,46 +120,139 @@ public class ChessBoard {
                         kind = BLACK_KIND;
                     }
                     if (King.INITIAL_POSITIONS.contains(FILES[file])) {
-                        chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new King(kind, this)));
+                        piece = new King(kind, this);
                         if (WHITE_KIND.equals(kind)) {
-                            whiteKing = (King) chessBoard.get(filerank).getOccupant();
+                            whiteKing = (King) piece;
                         } else {
-                            blackKing = (King) chessBoard.get(filerank).getOccupant();
+                            blackKing = (King) piece;
                         }
                     } else if (Knight.INITIAL_POSITIONS.contains(FILES[file])) {
-                        chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new Knight(kind, this)));
+                        piece = new Knight(kind, this);
                     } else if (Queen.INITIAL_POSITIONS.contains(FILES[file])) {
-                        chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new Queen(kind, this)));
+                        piece = new Queen(kind, this);
                     } else if (Bishop.INITIAL_POSITIONS.contains(FILES[file])) {
-                        chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new Bishop(kind, this)));
+                        piece = new Bishop(kind, this);
                     } else if (Rook.INITIAL_POSITIONS.contains(FILES[file])) {
-                        chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new Rook(kind, this)));
+                        piece = new Rook(kind, this);
                     }
 
                 // initialize white pawns
                 } else if ("2".equals(RANKS[rank])) {
-                    chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new Pawn(WHITE_KIND, this)));
+                    piece = new Pawn(WHITE_KIND, this);
 
                 //initialize black pawns
                 } else if ("7".equals(RANKS[rank])) {
-                    chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], new Pawn(BLACK_KIND, this)));
+                    piece = new Pawn(BLACK_KIND, this);
+                }
 
-                //set occupants as null in other fileranks
-                } else {
-                    chessBoard.put(filerank, new FileRank(FILES[file], RANKS[rank], null));
+                // Keep two arraylists of white and black pieces for implementation convenience.
+                if (piece != null) {
+                    int square = Position.square(file, RANKS.length - 1 - rank);
+                    place(piece, square);
+                    getPieces(piece.getKind()).add(piece);
+                    position.put(Position.piece(piece.getColor(), piece.getType()), square);
                 }
             }
         }
-        // Keep two arraylists of white and black pieces for implementation convenience.
-        for (FileRank fileRank : this.chessBoard.values()) {
-            if (fileRank.getOccupant() != null) {
-                if (((ChessPiece) fileRank.getOccupant()).getKind().equals(WHITE_KIND)) {
-                    whitePieces.add((ChessPiece) fileRank.getOccupant());
+        position.setSideToMove(Position.WHITE);
+        position.setEnPassantSquare(Position.NO_SQUARE);
+        position.setCastlingRights(getCastlingRights());
+    }
+
+    /**
+     * Removes every chess piece and every move to take back.
+     */
+    private void clearPieces() {
+        whitePieces.clear();
+        blackPieces.clear();
+        Arrays.fill(mailbox, EMPTY);
+        Arrays.fill(pieceSlots, null);
+        slotCount = 0;
+        Arrays.fill(undoMovedPieces, null);
+    }
+
+    /**
+     * Puts a chess piece on a square of the mailbox, giving it a slot if it has none yet.
+     * The bitboard position and the lists of pieces are left to the caller.
+     * @param piece
+     * @param square
+     */
+    private void place(ChessPiece piece, int square) {
+        int slot = 0;
+        while (slot < slotCount && pieceSlots[slot] != piece) {
+            slot++;
+        }
+        if (slot == slotCount) {
+            if (slotCount == MAX_SLOTS) {
+                throw new IllegalStateException("Too many chess pieces on the chess board");
+            }
+            if (slotCount == pieceSlots.length) {
+                pieceSlots = Arrays.copyOf(pieceSlots, Math.min(slotCount * 2, MAX_SLOTS));
+            }
+            pieceSlots[slotCount++] = piece;
+        }
+        mailbox[square] = (byte) slot;
+        piece.setSquare(square);
+    }
+
+    /**
+     * Sets up the chess board from a FEN string, replacing every chess piece and the bitboard position.
+     * The isMoved flags of the kings and rooks are set so that the castling rights derived from them are the
+     * castling rights of the FEN string. The board is unchanged if the FEN string is invalid.
+     * @param fen FEN string, the move clocks are optional.
+     */
+    public void load(String fen) {
+        load(Fen.parse(fen));
+    }
+
+    /**
+     * Sets up the chess board from a new bitboard position, which then backs the chess board and must not be
+     * used elsewhere. The board is unchanged if the position does not have one king of each color.
+     * @param parsed position without moves to take back.
+     */
+    public void load(Position parsed) {
+        if (Long.bitCount(parsed.pieces(Position.WHITE, Position.KING)) != 1
+                || Long.bitCount(parsed.pieces(Position.BLACK, Position.KING)) != 1) {
+            throw new IllegalArgumentException("Invalid position, each side needs one king: " + Fen.format(parsed));
+        }
+        int rights = parsed.getCastlingRights();
+        clearPieces();
+        for (int square = 0; square < 64; square++) {
+            int piece = parsed.pieceAt(square);
+            if (piece == Position.NO_PIECE) {
+                continue;
+            }
+            int color = Position.colorOf(piece);
+            String kind = color == Position.WHITE ? WHITE_KIND : BLACK_KIND;
+            ChessPiece chessPiece = createPiece(Position.typeOf(piece), kind);
+            place(chessPiece, square);
+            getPieces(kind).add(chessPiece);
+            int kingside = color == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+            int queenside = color == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+            int home = color == Position.WHITE ? 4 : 60;
+            if (chessPiece instanceof King) {
+                if (color == Position.WHITE) {
+                    whiteKing = (King) chessPiece;
                 } else {
-                    blackPieces.add((ChessPiece) fileRank.getOccupant());
+                    blackKing = (King) chessPiece;
                 }
+                ((King) chessPiece).setIsMoved(square != home || (rights & (kingside | queenside)) == 0);
+            } else if (chessPiece instanceof Rook) {
+                ((Rook) chessPiece).setIsMoved(!((square == home + 3 && (rights & kingside) != 0)
+                        || (square == home - 4 && (rights & queenside) != 0)));
             }
         }
+        position = parsed;
+        //drop the rights whose king or rook is missing, as getCastlingRights does.
+        position.setCastlingRights(getCastlingRights());
+    }
+
+    /**
+     * Returns the FEN string of the chess board.
+     * @return
+     */
+    public String toFen() {
+        return Fen.format(position);
     }
 
     /**
@@ -135,83 +263,63 @@ public class ChessBoard {
      * @return
      */
     public Boolean move(String from, String to, String turn) {
-        Boolean isValid;
-        FileRank fromPosition = chessBoard.get(from);
-        FileRank toPosition = chessBoard.get(to);
+        int fromSquare = square(from);
+        int toSquare = square(to);
+        return fromSquare != Position.NO_SQUARE && toSquare != Position.NO_SQUARE && move(fromSquare, toSquare, turn);
+    }
+
+    /**
+     * Returns the square of a filerank such as "e4", or Position.NO_SQUARE if it is not a filerank.
+     */
+    private static int square(String fileRank) {
+        if (fileRank == null || fileRank.length() != 2 || fileRank.charAt(0) < 'a' || fileRank.charAt(0) > 'h'
+                || fileRank.charAt(1) < '1' || fileRank.charAt(1) > '8') {
+            return Position.NO_SQUARE;
+        }
+        return Position.square(fileRank);
+    }
+
+    /**
+     * Perfroms a move on a chess piece given by square indices, with the validation of move.
+     * Unlike the string based methods this path allocates nothing unless a pawn is promoted, so it can be used to
+     * validate and play moves under load without creating garbage.
+     * @param from square of the moved piece.
+     * @param to destination square of the moved piece.
+     * @param color color of the moved piece, Position.WHITE or Position.BLACK.
+     * @return
+     */
+    public boolean move(int from, int to, int color) {
+        return move(from, to, color == Position.WHITE ? WHITE_KIND : BLACK_KIND);
+    }
+
+    private boolean move(int from, int to, String turn) {
+        boolean isValid;
+        ChessPiece movingPiece = getPiece(from);
 
         //makes sure the piece being moved is a valid chess piece
-        if (fromPosition.getOccupant() != null &&
-                ((ChessPiece) fromPosition.getOccupant()).getKind().equals(turn)) {
+        if (movingPiece != null && movingPiece.getKind().equals(turn)) {
 
-            ChessPiece movingPiece = (ChessPiece) fromPosition.getOccupant();
-            if (toPosition.getOccupant() != null) {
+            ChessPiece restingPiece = getPiece(to);
+            if (restingPiece != null) {
                 //Check if the target position is occupied by another chess piece and make sure it's one of the opponent's chess pieces
-                ChessPiece restingPiece = (ChessPiece) toPosition.getOccupant();
                 if (restingPiece.getKind().equals(movingPiece.getKind())) {
                     isValid = false;
                 } else {
-                    isValid = movingPiece.move(toPosition, true);
+                    isValid = movingPiece.move(to, false);
                 }
             } else {
                 /** If there is no chess piece occupying the target position
                 check if the moving piece has a valid move to reach the target position */
-                isValid = movingPiece.move(toPosition, true);
+                isValid = movingPiece.move(to, false);
                 //Check whether the specified move is a valid castle move
                 if (movingPiece instanceof King && !isValid) {
-                    isValid = ((King) movingPiece).castleMove(toPosition.getFileRankString(), true);
+                    isValid = ((King) movingPiece).castleMove(to, false);
                 }
             }
 
             //If the move is valid, make changes to the chess board.
             if (isValid) {
-                if (turn.equals(WHITE_KIND)) {
-                    if (chessBoard.get(to).getOccupant() != null) {
-                        blackPieces.remove(chessBoard.get(to).getOccupant());
-                    }
-                } else {
-                    if (chessBoard.get(to).getOccupant() != null) {
-                        whitePieces.remove(chessBoard.get(to).getOccupant());
-                    }
-                }
-                // Check if a pawn promotion  is performed and make necessary changes to the chess board context.
-                if(movingPiece instanceof Pawn && turn.equals(WHITE_KIND) &&
-                        toPosition.getFileRank().get(FileRank.RANK_KEY).equals("8")) {
-                    ChessPiece newPiece;
-                    if(((Pawn) movingPiece).getPromotion().equals("Q")) {
-                        newPiece = new Queen(turn,this);
-                    } else if(((Pawn) movingPiece).getPromotion().equals("N")) {
-                        newPiece = new Knight(turn,this);
-                    } else if(((Pawn) movingPiece).getPromotion().equals("B")) {
-                        newPiece = new Bishop(turn,this);
-                    } else {
-                        newPiece = new Rook(turn, this);
-                    }
-                    newPiece.setCurrentPosition(toPosition);
-                    whitePieces.add(newPiece);
-                    toPosition.setOccupant(newPiece);
-                    whitePieces.remove(movingPiece);
-                    chessBoard.get(from).setOccupant(null);
-                } else if(movingPiece instanceof Pawn && turn.equals(BLACK_KIND) &&
-                        toPosition.getFileRank().get(FileRank.RANK_KEY).equals("1") ){
-                    ChessPiece newPiece;
-                    if(((Pawn) movingPiece).getPromotion().equals("Q")) {
-                        newPiece = new Queen(turn,this);
-                    } else if(((Pawn) movingPiece).getPromotion().equals("N")) {
-                        newPiece = new Knight(turn,this);
-                    } else if(((Pawn) movingPiece).getPromotion().equals("B")) {
-                        newPiece = new Bishop(turn,this);
-                    } else {
-                        newPiece = new Rook(turn, this);
-                    }
-                    newPiece.setCurrentPosition(toPosition);
-                    blackPieces.add(newPiece);
-                    toPosition.setOccupant(newPiece);
-                    blackPieces.remove(movingPiece);
-                    chessBoard.get(from).setOccupant(null);
-                } else{
-                    chessBoard.get(to).setOccupant(movingPiece);
-                    chessBoard.get(from).setOccupant(null);
-                }
+                makeMove(encodeMove(movingPiece, from, to));
             }
         } else {
             isValid = false;
@@ -219,6 +327,217 @@ public class ChessBoard {
         return isValid;
     }
 
+    /**
+     * Returns the encoded move of a chess piece which has been validated to reach the target position.
+     * @param movingPiece the moved piece.
+     * @param from current square of the moved piece.
+     * @param to destination square of the moved piece.
+     * @return
+     */
+    private int encodeMove(ChessPiece movingPiece, int from, int to) {
+        int flags = mailbox[to] != EMPTY ? Move.CAPTURE : 0;
+        int promotion = 0;
+        if (movingPiece instanceof Pawn) {
+            if (Position.fileOf(from) != Position.fileOf(to) && mailbox[to] == EMPTY) {
+                flags |= Move.CAPTURE | Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flags |= Move.DOUBLE_PUSH;
+            }
+            if (Position.rankOf(to) == 0 || Position.rankOf(to) == 7) {
+                promotion = "NBRQ".indexOf(((Pawn) movingPiece).getPromotion()) + Position.KNIGHT;
+            }
+        } else if (movingPiece instanceof King && Math.abs(to - from) == 2) {
+            flags |= Move.CASTLE;
+        }
+        return Move.of(from, to, promotion, flags);
+    }
+
+    /**
+     * Plays a legal move, such as one written by generateLegalMoves, on the chess board.
+     * The bitboard position is updated by Position.makeMove and the fileranks and chess pieces follow it.
+     * The move can be taken back with unmakeMove.
+     * @param move encoded move.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        byte slot = mailbox[from];
+        ChessPiece movingPiece = pieceSlots[slot];
+
+        //remove the captured chess piece, which is beside the destination for an en passant capture.
+        int capturedSquare = capturedSquare(move, movingPiece.getColor());
+        byte capturedSlot = mailbox[capturedSquare];
+        if (capturedSlot != EMPTY) {
+            ChessPiece capturedPiece = pieceSlots[capturedSlot];
+            getPieces(capturedPiece.getKind()).remove(capturedPiece);
+            capturedPiece.setSquare(Position.NO_SQUARE);
+            mailbox[capturedSquare] = EMPTY;
+        }
+
+        int index = position.getUndoSize();
+        if (index == undoMovedPieces.length) {
+            undoMovedPieces = Arrays.copyOf(undoMovedPieces, index * 2);
+            undoCapturedSlots = Arrays.copyOf(undoCapturedSlots, index * 2);
+            undoWasMoved = Arrays.copyOf(undoWasMoved, index * 2);
+        }
+        undoMovedPieces[index] = movingPiece;
+        undoCapturedSlots[index] = capturedSlot;
+        undoWasMoved[index] = (movingPiece instanceof King && ((King) movingPiece).getIsMoved())
+                || (movingPiece instanceof Rook && ((Rook) movingPiece).getIsMoved());
+
+        mailbox[from] = EMPTY;
+        if (Move.isPromotion(move)) {
+            ChessPiece newPiece = createPiece(Move.promotion(move), movingPiece.getKind());
+            List<ChessPiece> pieces = getPieces(movingPiece.getKind());
+            pieces.remove(movingPiece);
+            pieces.add(newPiece);
+            movingPiece.setSquare(Position.NO_SQUARE);
+            pieceSlots[slot] = newPiece;
+            movingPiece = newPiece;
+        }
+        mailbox[to] = slot;
+        movingPiece.setSquare(to);
+
+        if (movingPiece instanceof King) {
+            ((King) movingPiece).setIsMoved(true);
+            if (Move.isCastle(move)) {
+                boolean kingside = to > from;
+                int rookFrom = from + (kingside ? 3 : -4);
+                int rookTo = from + (kingside ? 1 : -1);
+                Rook rook = (Rook) pieceSlots[mailbox[rookFrom]];
+                mailbox[rookTo] = mailbox[rookFrom];
+                mailbox[rookFrom] = EMPTY;
+                rook.setSquare(rookTo);
+                rook.setIsMoved(true);
+            }
+        } else if (movingPiece instanceof Rook) {
+            ((Rook) movingPiece).setIsMoved(true);
+        }
+        position.makeMove(move);
+    }
+
+    /**
+     * Takes back the last move played with makeMove, or with move or promotePawn which use it.
+     * @return if there was a move to take back.
+     */
+    public Boolean unmakeMove() {
+        int index = position.getUndoSize() - 1;
+        if (index < 0) {
+            return false;
+        }
+        int move = position.getLastMove();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        byte slot = mailbox[to];
+        ChessPiece movedPiece = undoMovedPieces[index];
+
+        //a promoted pawn is replaced back by the pawn.
+        ChessPiece placedPiece = pieceSlots[slot];
+        if (placedPiece != movedPiece) {
+            List<ChessPiece> pieces = getPieces(movedPiece.getKind());
+            pieces.remove(placedPiece);
+            pieces.add(movedPiece);
+            placedPiece.setSquare(Position.NO_SQUARE);
+            pieceSlots[slot] = movedPiece;
+        }
+        mailbox[to] = EMPTY;
+        mailbox[from] = slot;
+        movedPiece.setSquare(from);
+
+        if (movedPiece instanceof King) {
+            ((King) movedPiece).setIsMoved(undoWasMoved[index]);
+            if (Move.isCastle(move)) {
+                boolean kingside = to > from;
+                int rookFrom = from + (kingside ? 3 : -4);
+                int rookTo = from + (kingside ? 1 : -1);
+                Rook rook = (Rook) pieceSlots[mailbox[rookTo]];
+                mailbox[rookFrom] = mailbox[rookTo];
+                mailbox[rookTo] = EMPTY;
+                rook.setSquare(rookFrom);
+                rook.setIsMoved(false);
+            }
+        } else if (movedPiece instanceof Rook) {
+            ((Rook) movedPiece).setIsMoved(undoWasMoved[index]);
+        }
+
+        byte capturedSlot = undoCapturedSlots[index];
+        if (capturedSlot != EMPTY) {
+            ChessPiece capturedPiece = pieceSlots[capturedSlot];
+            int capturedSquare = capturedSquare(move, movedPiece.getColor());
+            mailbox[capturedSquare] = capturedSlot;
+            capturedPiece.setSquare(capturedSquare);
+            getPieces(capturedPiece.getKind()).add(capturedPiece);
+        }
+        undoMovedPieces[index] = null;
+        position.unmakeMove();
+        return true;
+    }
+
+    /**
+     * Returns the square of the piece captured by a move, which is beside the destination for en passant.
+     * @param move encoded move.
+     * @param color color of the moving piece.
+     * @return
+     */
+    private static int capturedSquare(int move, int color) {
+        if (Move.isEnPassant(move)) {
+            return Move.to(move) + (color == Position.WHITE ? -8 : 8);
+        }
+        return Move.to(move);
+    }
+
+    /**
+     * Returns a new chess piece of the specified type and kind.
+     * @param type piece type in the bitboard position.
+     * @param kind kind of the chess piece.
+     * @return
+     */
+    private ChessPiece createPiece(int type, String kind) {
+        switch (type) {
+            case Position.KNIGHT:
+                return new Knight(kind, this);
+            case Position.BISHOP:
+                return new Bishop(kind, this);
+            case Position.ROOK:
+                return new Rook(kind, this);
+            case Position.QUEEN:
+                return new Queen(kind, this);
+            case Position.KING:
+                return new King(kind, this);
+            default:
+                return new Pawn(kind, this);
+        }
+    }
+
+    /**
+     * Returns the castling rights of both kinds, derived from the kings and rooks that have not moved yet.
+     * @return
+     */
+    public int getCastlingRights() {
+        int rights = 0;
+        for (King king : new King[]{whiteKing, blackKing}) {
+            if (king == null || king.getIsMoved()) {
+                continue;
+            }
+            int home = king.getColor() == Position.WHITE ? 4 : 60;
+            if (king.getSquare() != home) {
+                continue;
+            }
+            for (ChessPiece piece : getPieces(king.getKind())) {
+                if (piece instanceof Rook && !((Rook) piece).getIsMoved()) {
+                    if (piece.getSquare() == home + 3) {
+                        rights |= king.getColor() == Position.WHITE
+                                ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+                    } else if (piece.getSquare() == home - 4) {
+                        rights |= king.getColor() == Position.WHITE
+                                ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+                    }
+                }
+            }
+        }
+        return rights;
+    }
+
     /**
      * Set pawn's promotion type.
      * @param from current position of the pawn.
@@ -228,18 +547,51 @@ public class ChessBoard {
      * @return
      */
     public Boolean promotePawn(String from, String to, String turn,String promotion) {
-        Boolean isValid = false;
-        if(chessBoard.get(from).getOccupant() instanceof Pawn && Arrays.asList(PROMOTIONS).contains(promotion)) {
-            ((Pawn) chessBoard.get(from).getOccupant()).setPromotion(promotion);
-               isValid = move(from,to,turn);
+        int fromSquare = square(from);
+        int toSquare = square(to);
+        return fromSquare != Position.NO_SQUARE && toSquare != Position.NO_SQUARE
+                && promotePawn(fromSquare, toSquare, turn, promotion);
+    }
+
+    /**
+     * Set pawn's promotion type and performs the move given by square indices, with the validation of promotePawn.
+     * @param from square of the pawn.
+     * @param to destination square of the pawn.
+     * @param color color of the pawn, Position.WHITE or Position.BLACK.
+     * @param promotion piece type of the promotion, from Position.KNIGHT to Position.QUEEN.
+     * @return
+     */
+    public boolean promotePawn(int from, int to, int color, int promotion) {
+        if (promotion < Position.KNIGHT || promotion > Position.QUEEN) {
+            return false;
         }
-        // If the specified promotion is not valid the set the promotion back to the default promotion
-        if(!isValid) {
-            ((Pawn) chessBoard.get(from).getOccupant()).setPromotion("Q");
+        return promotePawn(from, to, color == Position.WHITE ? WHITE_KIND : BLACK_KIND,
+                PROMOTION_SYMBOLS[promotion - Position.KNIGHT]);
+    }
+
+    private boolean promotePawn(int from, int to, String turn, String promotion) {
+        boolean isValid = false;
+        Object occupant = getPiece(from);
+        if(occupant instanceof Pawn && isPromotion(promotion)) {
+            ((Pawn) occupant).setPromotion(promotion);
+               isValid = move(from, to, turn);
+            // If the specified promotion is not valid the set the promotion back to the default promotion
+            if(!isValid) {
+                ((Pawn) occupant).setPromotion("Q");
+            }
         }
         return isValid;
     }
 
+    private static boolean isPromotion(String promotion) {
+        for (String symbol : PROMOTIONS) {
+            if (symbol.equals(promotion)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Return the king of the specified type.
      * @param kind kind of king.
@@ -268,11 +620,120 @@ public class ChessBoard {
     }
 
     /**
-     * Returns the map of positions(FileRanks) of the chess board.
+     * Returns the map of positions(FileRanks) of the chess board, created on the first call.
      * @return
      */
     public Map<String, FileRank> getChessBoard() {
+        if (this.chessBoard == null) {
+            Map<String, FileRank> views = new HashMap<>();
+            for (int square = 0; square < 64; square++) {
+                views.put(FileRank.name(square), getFileRank(square));
+            }
+            this.chessBoard = views;
+        }
         return this.chessBoard;
     }
 
+    /**
+     * Returns the filerank of a square, a view created on the first call for the square.
+     * @param square square index in the bitboard position.
+     * @return
+     */
+    public FileRank getFileRank(int square) {
+        if (fileRanks == null) {
+            fileRanks = new FileRank[64];
+        }
+        if (fileRanks[square] == null) {
+            fileRanks[square] = new FileRank(this, square);
+        }
+        return fileRanks[square];
+    }
+
+    /**
+     * Returns the chess piece on a square, or null.
+     * @param square square index in the bitboard position.
+     * @return
+     */
+    public ChessPiece getPiece(int square) {
+        byte slot = mailbox[square];
+        return slot == EMPTY ? null : pieceSlots[slot];
+    }
+
+    /**
+     * Returns the bitboard position backing the chess board, which is replaced when a FEN string is loaded.
+     * @return
+     */
+    public Position getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Returns the Zobrist key of the chess board, which identifies the pieces on their squares, the side to move,
+     * the castling rights left by the isMoved flags of the kings and rooks and the en passant file.
+     * It is updated incrementally by every move, including promotions, castling and captures.
+     * @return
+     */
+    public long getKey() {
+        return position.getKey();
+    }
+
+    /**
+     * Writes all the legal moves of the side to move into the specified buffer, encoded as in Move.
+     * @param moves buffer of at least MoveGenerator.MAX_MOVES moves.
+     * @return number of moves written.
+     */
+    public int generateLegalMoves(int[] moves) {
+        return MoveGenerator.generateLegalMoves(position, moves);
+    }
+
+    /**
+     * Writes all the legal moves of the chess pieces of the specified kind into the specified buffer.
+     * @param kind kind of the moved chess pieces.
+     * @param moves buffer of at least MoveGenerator.MAX_MOVES moves.
+     * @return number of moves written.
+     */
+    public int generateLegalMoves(String kind, int[] moves) {
+        return MoveGenerator.generateLegalMoves(position, Position.colorOf(kind), moves, 0);
+    }
+
+    /**
+     * Returns if any chess piece of the specified kind has a legal move.
+     * @param kind kind of the chess pieces.
+     * @return
+     */
+    public Boolean hasLegalMoves(String kind) {
+        if (moveBuffer == null) {
+            moveBuffer = new int[MoveGenerator.MAX_MOVES];
+        }
+        return generateLegalMoves(kind, moveBuffer) > 0;
+    }
+
+    /**
+     * Returns if a filerank is attacked by any chess piece of the specified kind.
+     * @param fileRank filerank as a string.
+     * @param kind kind of the attacking chess pieces.
+     * @return
+     */
+    public Boolean isSquareAttacked(String fileRank, String kind) {
+        return position.isAttacked(Position.square(fileRank), Position.colorOf(kind));
+    }
+
+    /**
+     * Sets the occupant of a filerank and updates the bitboard position accordingly.
+     * @param fileRank filerank to be modified.
+     * @param piece new occupant of the filerank, or null to empty it.
+     */
+    public void setOccupant(FileRank fileRank, ChessPiece piece) {
+        int square = fileRank.getSquare();
+        if (piece != null) {
+            place(piece, square);
+        } else {
+            mailbox[square] = EMPTY;
+        }
+        position.remove(square);
+        if (piece != null) {
+            position.put(Position.piece(piece.getColor(), piece.getType()), square);
+        }
+    }
+
 }
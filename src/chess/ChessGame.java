@@ -1,5 +1,12 @@
 package chess;
 
+import chess.book.OpeningBook;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.record.GameJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
 
 /**
@@ -18,11 +25,23 @@ public class ChessGame {
     private static final String DRAW = "draw";
     private static final String CHECK = "Check";
     private static final String CHECKMATE = "Checkmate";
+    private static final String STALEMATE = "Stalemate";
+    private static final String TAKEBACK = "takeback";
+    //flags of the state written with the snapshots of the game.
+    private static final byte DRAW_PROMPT_STATE = 1;
+    private static final byte ENGINE_WHITE_STATE = 2;
+    private static final byte ENGINE_BLACK_STATE = 4;
     private ChessBoard chessBoard;
     private Boolean gameOver;
     private String winner;
     private String turn;
     private Boolean draw_prompt = false;
+    //kind of the side played by the engine, or null if both sides are played from stdin.
+    private String engineTurn;
+    private Engine engine;
+    private SearchLimits searchLimits;
+    private GameJournal journal;
+    private long gameId;
 
     public ChessGame() {
         this.chessBoard = new ChessBoard();
@@ -30,6 +49,71 @@ public class ChessGame {
         this.turn = WHITE_TURN;
     }
 
+    /**
+     * Creates a game where one side is played by the engine.
+     * @param engineTurn kind of the side played by the engine.
+     * @param searchLimits limits of the search of each engine move.
+     */
+    public ChessGame(String engineTurn, SearchLimits searchLimits) {
+        this();
+        this.engineTurn = engineTurn;
+        this.engine = new Engine();
+        this.searchLimits = searchLimits;
+    }
+
+    /**
+     * Sets the opening book of the engine, whose moves are played without a search.
+     * @param openingBook opening book, or null to always search.
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        if (engine != null) {
+            engine.setOpeningBook(openingBook);
+        }
+    }
+
+    /**
+     * Writes the game to a journal, a snapshot of the game at once and then every move, so that the game can be
+     * restored after a restart of the process.
+     * @param journal
+     * @param gameId id of the game in the journal.
+     * @throws IOException
+     */
+    public void setJournal(GameJournal journal, long gameId) throws IOException {
+        this.journal = journal;
+        this.gameId = gameId;
+        journal.snapshot(gameId, getState(), chessBoard.getPosition());
+    }
+
+    /**
+     * Restores a game from its snapshot and later moves in a journal, to which the game goes on being written.
+     * The moves played before the snapshot cannot be taken back.
+     * @param journal
+     * @param gameId id of the game in the journal.
+     * @param searchLimits limits of the search of each engine move, if one side is played by the engine.
+     * @return the game, or null if the game is not in the journal.
+     */
+    public static ChessGame restore(GameJournal journal, long gameId, SearchLimits searchLimits) {
+        ChessBoard chessBoard = new ChessBoard();
+        int state = journal.restore(gameId, chessBoard);
+        if (state < 0) {
+            return null;
+        }
+        ChessGame chessGame;
+        if ((state & ENGINE_WHITE_STATE) != 0) {
+            chessGame = new ChessGame(WHITE_TURN, searchLimits);
+        } else if ((state & ENGINE_BLACK_STATE) != 0) {
+            chessGame = new ChessGame(BLACK_TURN, searchLimits);
+        } else {
+            chessGame = new ChessGame();
+        }
+        chessGame.chessBoard = chessBoard;
+        chessGame.turn = chessBoard.getPosition().getSideToMove() == Position.WHITE ? WHITE_TURN : BLACK_TURN;
+        chessGame.draw_prompt = (state & DRAW_PROMPT_STATE) != 0;
+        chessGame.journal = journal;
+        chessGame.gameId = gameId;
+        return chessGame;
+    }
+
     /**
      * Validate user input and performs actions based on the input.
      */
@@ -45,8 +129,14 @@ public class ChessGame {
                 System.out.print("\n" + BLACKS_TURN_MESSAGE);
             }
 
-            //get the user input for stdin
-            String input = scanner.nextLine();
+            //get the user input for stdin, or the move of the engine in the same format
+            String input;
+            if (turn.equals(engineTurn)) {
+                input = getEngineInput();
+                System.out.println(input);
+            } else {
+                input = scanner.nextLine();
+            }
             String[] inArr = input.split("\\s+");
 
             //Resign
@@ -60,11 +150,27 @@ public class ChessGame {
                 //Draw prompt
             } else if (inArr.length == 3 && DRAW_PROMPT.equals(inArr[2])) {
                 draw_prompt = true;
+                journalSnapshot();
 
                 //Accept draw
             } else if (draw_prompt && inArr.length == 1 && DRAW.equals(inArr[0])) {
+                journalEnd();
                 break;
 
+                //Take back the last move
+            } else if (inArr.length == 1 && TAKEBACK.equals(inArr[0])) {
+                //against the engine its reply is taken back too, so that it is the player's move again
+                int plies = engineTurn == null ? 1 : 2;
+                if (chessBoard.getPosition().getUndoSize() >= plies) {
+                    for (int i = 0; i < plies; i++) {
+                        chessBoard.unmakeMove();
+                        turn = WHITE_TURN.equals(turn) ? BLACK_TURN : WHITE_TURN;
+                    }
+                    journalSnapshot();
+                } else {
+                    System.out.println(ILLEGAL_MOVE);
+                }
+
                 //move chess piece
             }  else if (inArr.length == 2 | inArr.length == 3) {
                 Boolean isValid;
@@ -79,16 +185,23 @@ public class ChessGame {
 
                 //if a valid move is performed, evaluate the status of the game
                 if (isValid) {
+                    journalMove(chessBoard.getPosition().getLastMove());
                     if (WHITE_TURN.equals(turn)) {
                         // check if opponent's king is check | game is checkmate
                         if (chessBoard.getKing(ChessBoard.BLACK_KIND).identifyCheck()) {
                             if (chessBoard.getKing(ChessBoard.BLACK_KIND).getIsCheckMate()) {
                                 System.out.print(CHECKMATE + "\n");
                                 System.out.print(WHITE_WIN);
+                                journalEnd();
                                 break;
                             } else {
                                 System.out.print(CHECK);
                             }
+                        } else if (chessBoard.getKing(ChessBoard.BLACK_KIND).getIsStaleMate()) {
+                            System.out.print(STALEMATE + "\n");
+                            System.out.print(DRAW);
+                            journalEnd();
+                            break;
                         }
                         turn = BLACK_TURN;
                     } else {
@@ -97,10 +210,16 @@ public class ChessGame {
                             if (chessBoard.getKing(ChessBoard.WHITE_KIND).getIsCheckMate()) {
                                 System.out.print(CHECKMATE + "\n");
                                 System.out.print(BLACK_WIN);
+                                journalEnd();
                                 break;
                             } else {
                                 System.out.print(CHECK);
                             }
+                        } else if (chessBoard.getKing(ChessBoard.WHITE_KIND).getIsStaleMate()) {
+                            System.out.print(STALEMATE + "\n");
+                            System.out.print(DRAW);
+                            journalEnd();
+                            break;
                         }
                         turn = WHITE_TURN;
                     }
@@ -113,4 +232,64 @@ public class ChessGame {
         }
 
     }
+
+    /**
+     * Returns the state of the game written with its snapshots.
+     * @return
+     */
+    private byte getState() {
+        byte state = draw_prompt ? DRAW_PROMPT_STATE : 0;
+        if (WHITE_TURN.equals(engineTurn)) {
+            state |= ENGINE_WHITE_STATE;
+        } else if (BLACK_TURN.equals(engineTurn)) {
+            state |= ENGINE_BLACK_STATE;
+        }
+        return state;
+    }
+
+    private void journalSnapshot() {
+        if (journal != null) {
+            try {
+                journal.snapshot(gameId, getState(), chessBoard.getPosition());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void journalMove(int move) {
+        if (journal != null) {
+            try {
+                journal.move(gameId, move);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void journalEnd() {
+        if (journal != null) {
+            try {
+                journal.end(gameId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the move of the engine as user input, such as "e2 e4" or "e7 e8 Q" for a promotion.
+     * @return
+     */
+    private String getEngineInput() {
+        int move = engine.bestMove(chessBoard, searchLimits);
+        if (move == Move.NONE) {
+            return RESIGN;
+        }
+        String input = Position.squareName(Move.from(move)) + " " + Position.squareName(Move.to(move));
+        if (Move.isPromotion(move)) {
+            input += " " + "PNBRQK".charAt(Move.promotion(move));
+        }
+        return input;
+    }
 }
@@ -0,0 +1,178 @@
+package chess;
+
+import java.util.regex.Pattern;
+
+/**
+ * Forsyth-Edwards Notation(FEN) of chess positions.
+ */
+public final class Fen {
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String PIECE_SYMBOLS = "pnbrqk";
+    private static final Pattern FIELD_SEPARATOR = Pattern.compile("\\s+");
+
+    private Fen() {
+    }
+
+    /**
+     * Returns the bitboard position described by a FEN string.
+     * Besides the syntax, the halfmove clock must not be negative and the fullmove number must be at least 1, and
+     * the position must be one the move generation can play from: every rank has 8 files, there is one king of
+     * each color, no pawn is on the first or last rank, the side not to move is not in check, and the en passant
+     * square is behind a pawn which has just moved two squares.
+     * @param fen FEN string, the move clocks are optional.
+     * @return
+     * @throws IllegalArgumentException if the FEN string is not valid.
+     */
+    public static Position parse(String fen) {
+        String[] fields = FIELD_SEPARATOR.split(fen.trim());
+        if (fields.length < 4 || fields.length > 6 || !("w".equals(fields[1]) || "b".equals(fields[1]))) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        Position position = new Position();
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (file != 8) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 8) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+            } else {
+                int type = PIECE_SYMBOLS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || file > 7 || rank < 0 || (type == Position.PAWN && (rank == 0 || rank == 7))) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                int color = Character.isUpperCase(c) ? Position.WHITE : Position.BLACK;
+                position.put(Position.piece(color, type), Position.square(file, rank));
+                file++;
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        int us = "b".equals(fields[1]) ? Position.BLACK : Position.WHITE;
+        position.setSideToMove(us);
+        int rights = 0;
+        for (int i = 0; i < fields[2].length(); i++) {
+            switch (fields[2].charAt(i)) {
+                case 'K':
+                    rights |= Position.WHITE_KINGSIDE;
+                    break;
+                case 'Q':
+                    rights |= Position.WHITE_QUEENSIDE;
+                    break;
+                case 'k':
+                    rights |= Position.BLACK_KINGSIDE;
+                    break;
+                case 'q':
+                    rights |= Position.BLACK_QUEENSIDE;
+                    break;
+                case '-':
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+        position.setCastlingRights(rights);
+        if ("-".equals(fields[3])) {
+            position.setEnPassantSquare(Position.NO_SQUARE);
+        } else if (fields[3].length() == 2 && fields[3].charAt(0) >= 'a' && fields[3].charAt(0) <= 'h'
+                && fields[3].charAt(1) == (us == Position.WHITE ? '6' : '3')
+                && isEnPassantSquare(position, Position.square(fields[3]), us)) {
+            position.setEnPassantSquare(Position.square(fields[3]));
+        } else {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        int halfmoveClock;
+        int fullmoveNumber;
+        try {
+            halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen, e);
+        }
+        if (halfmoveClock < 0 || fullmoveNumber < 1) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        position.setHalfmoveClock(halfmoveClock);
+        position.setFullmoveNumber(fullmoveNumber);
+        if (Long.bitCount(position.pieces(Position.WHITE, Position.KING)) != 1
+                || Long.bitCount(position.pieces(Position.BLACK, Position.KING)) != 1
+                || position.isInCheck(us ^ 1)) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        return position;
+    }
+
+    /**
+     * Returns if an en passant square on the right rank was just passed by a pawn of the side not to move: the
+     * square and the one the pawn came from are empty and the pawn is in front of it.
+     */
+    private static boolean isEnPassantSquare(Position position, int square, int us) {
+        int forward = us == Position.WHITE ? 8 : -8;
+        return !position.isOccupied(square) && !position.isOccupied(square + forward)
+                && position.pieceAt(square - forward) == Position.piece(us ^ 1, Position.PAWN);
+    }
+
+    /**
+     * Returns the FEN string of a position.
+     * @param position
+     * @return
+     */
+    public static String format(Position position) {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = position.pieceAt(Position.square(file, rank));
+                if (piece == Position.NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char symbol = PIECE_SYMBOLS.charAt(Position.typeOf(piece));
+                fen.append(Position.colorOf(piece) == Position.WHITE ? Character.toUpperCase(symbol) : symbol);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(position.getSideToMove() == Position.WHITE ? " w " : " b ");
+        int rights = position.getCastlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        } else {
+            if ((rights & Position.WHITE_KINGSIDE) != 0) {
+                fen.append('K');
+            }
+            if ((rights & Position.WHITE_QUEENSIDE) != 0) {
+                fen.append('Q');
+            }
+            if ((rights & Position.BLACK_KINGSIDE) != 0) {
+                fen.append('k');
+            }
+            if ((rights & Position.BLACK_QUEENSIDE) != 0) {
+                fen.append('q');
+            }
+        }
+        fen.append(' ');
+        fen.append(position.getEnPassantSquare() == Position.NO_SQUARE
+                ? "-" : Position.squareName(position.getEnPassantSquare()));
+        fen.append(' ').append(position.getHalfmoveClock()).append(' ').append(position.getFullmoveNumber());
+        return fen.toString();
+    }
+}
@@ -2,51 +2,92 @@ package chess;
 
 import chess.piece.ChessPiece;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Models a position(Square) of a chess board.
+ * A filerank is a view of a square of its chess board, whose occupant is read from and written to the mailbox of
+ * the board. The names and file/rank maps of the squares are immutable and shared by every board, and a board
+ * creates the views of its squares only when they are asked for, so a board does not hold 64 fileranks.
  */
 public class FileRank {
     public static final String FILE_KEY = "file";
     public static final String RANK_KEY = "rank";
-    private Map<String,String> filerank = new HashMap<>();
-    private Object occupant;
-    private String id;
-
-    public FileRank(String file, String rank, Object initialOccupant) {
-        this.id = file + rank;
-        filerank.put(FILE_KEY, file);
-        filerank.put(RANK_KEY, rank);
-        if(initialOccupant != null && initialOccupant instanceof ChessPiece) {
-            ((ChessPiece) initialOccupant).setCurrentPosition(this);
+    //names and indices of the squares, shared by all the fileranks of all the chess boards.
+    private static final String[] NAMES = new String[64];
+    private static final List<Map<String, String>> FILE_RANKS = newFileRanks();
+
+    private final ChessBoard chessBoard;
+    private final int square;
+
+    /**
+     * Creates the view of a square of a chess board, see ChessBoard.getFileRank.
+     * @param chessBoard
+     * @param square square index in the bitboard position.
+     */
+    FileRank(ChessBoard chessBoard, int square) {
+        this.chessBoard = chessBoard;
+        this.square = square;
+    }
+
+    private static List<Map<String, String>> newFileRanks() {
+        List<Map<String, String>> fileRanks = new ArrayList<>(64);
+        for (int square = 0; square < 64; square++) {
+            String file = ChessBoard.FILES[Position.fileOf(square)];
+            String rank = String.valueOf(Position.rankOf(square) + 1);
+            Map<String, String> filerank = new HashMap<>();
+            filerank.put(FILE_KEY, file);
+            filerank.put(RANK_KEY, rank);
+            fileRanks.add(Collections.unmodifiableMap(filerank));
+            NAMES[square] = (file + rank).intern();
         }
-        this.occupant = initialOccupant;
+        return Collections.unmodifiableList(fileRanks);
+    }
+
+    /**
+     * Returns the name of a square, such as "e4", which is the same string for every call.
+     * @param square square index in the bitboard position.
+     * @return
+     */
+    public static String name(int square) {
+        return NAMES[square];
     }
 
     /**
-     * Returns the indices of the filerank.
+     * Returns the indices of the filerank, which cannot be modified.
      * @return
      */
     public Map<String, String> getFileRank() {
-        return filerank;
+        return FILE_RANKS.get(square);
     }
 
     /**
      * Returns the concatenated indices of the filerank.
+     * The string is shared by the fileranks of the square, so that the move path does not allocate it for each move.
      * @return
      */
     public String getFileRankString() {
-        return filerank.get(FILE_KEY) + filerank.get(RANK_KEY);
+        return NAMES[square];
+    }
+
+    /**
+     * Returns the square index of the filerank in the bitboard position.
+     * @return
+     */
+    public int getSquare() {
+        return square;
     }
 
     /**
-     * Sets the occupant of the filerank.
-     * @param occupant
+     * Sets the occupant of the filerank, as ChessBoard.setOccupant which keeps the bitboard position in sync.
+     * @param occupant chess piece, or null to empty the filerank.
      */
     public void setOccupant(Object occupant) {
-        this.occupant = occupant;
+        chessBoard.setOccupant(this, (ChessPiece) occupant);
     }
 
     /**
@@ -54,6 +95,6 @@ public class FileRank {
      * @return
      */
     public Object getOccupant() {
-        return this.occupant;
+        return chessBoard.getPiece(square);
     }
 }
@@ -0,0 +1,133 @@
+package chess;
+
+/**
+ * Compact int encoding of a chess move.
+ * Bits 0-5 hold the origin square, bits 6-11 the destination square, bits 12-14 the promotion piece type
+ * and the remaining bits the move flags.
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    //origin, destination and promotion bits, the flags of a move are implied by the position it is played in.
+    private static final int SHORT_MASK = 0x7FFF;
+
+    private Move() {
+    }
+
+    /**
+     * Returns the encoded move.
+     * @param from origin square.
+     * @param to destination square.
+     * @param flags move flags.
+     * @return
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | flags;
+    }
+
+    /**
+     * Returns the encoded promotion move.
+     * @param from origin square.
+     * @param to destination square.
+     * @param promotion piece type the pawn is promoted to.
+     * @param flags move flags.
+     * @return
+     */
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << PROMOTION_SHIFT) | flags;
+    }
+
+    /**
+     * Returns the origin square of a move.
+     * @param move
+     * @return
+     */
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the destination square of a move.
+     * @param move
+     * @return
+     */
+    public static int to(int move) {
+        return (move >>> 6) & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the piece type a pawn is promoted to, or 0 if the move is not a promotion.
+     * @param move
+     * @return
+     */
+    public static int promotion(int move) {
+        return (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    /**
+     * Returns the origin, destination and promotion of a move in 16 bits, as stored in game records and books.
+     * @param move
+     * @return
+     */
+    public static short toShort(int move) {
+        return (short) (move & SHORT_MASK);
+    }
+
+    /**
+     * Returns the move of a list whose origin, destination and promotion are those of a 16 bit move.
+     * @param shortMove move written by toShort.
+     * @param moves legal moves of the position.
+     * @param count number of moves.
+     * @return encoded move with its flags, or NONE if no move of the list matches.
+     */
+    public static int fromShort(int shortMove, int[] moves, int count) {
+        int bits = shortMove & SHORT_MASK;
+        for (int i = 0; i < count; i++) {
+            if ((moves[i] & SHORT_MASK) == bits) {
+                return moves[i];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the move in coordinate notation such as "e2e4" or "e7e8q".
+     * @param move
+     * @return
+     */
+    public static String toString(int move) {
+        String text = Position.squareName(from(move)) + Position.squareName(to(move));
+        if (isPromotion(move)) {
+            text += "pnbrqk".charAt(promotion(move));
+        }
+        return text;
+    }
+}
@@ -0,0 +1,230 @@
+package chess;
+
+/**
+ * Legal move generator over a bitboard position.
+ * The pieces giving check and the pieces pinned to the king are computed once per position. A move of a non king
+ * piece is legal if it lands on the check evasion mask and, for a pinned piece, stays on the line of its pin.
+ * Only king moves and en passant captures need to test the resulting occupancy.
+ */
+public final class MoveGenerator {
+    public static final int MAX_MOVES = 256;
+
+    private static final int[] PROMOTIONS = {Position.QUEEN, Position.KNIGHT, Position.ROOK, Position.BISHOP};
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes the legal moves of the side to move into the specified buffer.
+     * @param position
+     * @param moves buffer of at least MAX_MOVES moves.
+     * @return number of moves written.
+     */
+    public static int generateLegalMoves(Position position, int[] moves) {
+        return generateLegalMoves(position, moves, 0);
+    }
+
+    /**
+     * Writes the legal moves of the side to move into the specified buffer starting at an offset.
+     * @param position
+     * @param moves buffer with room for at least MAX_MOVES moves after the offset.
+     * @param offset index of the first move written.
+     * @return number of moves written.
+     */
+    public static int generateLegalMoves(Position position, int[] moves, int offset) {
+        return generateLegalMoves(position, position.getSideToMove(), moves, offset);
+    }
+
+    /**
+     * Writes the legal moves of the specified color into the buffer starting at an offset.
+     * En passant captures are only generated for the side to move.
+     * @param position
+     * @param us color of the moving side.
+     * @param moves buffer with room for at least MAX_MOVES moves after the offset.
+     * @param offset index of the first move written.
+     * @return number of moves written.
+     */
+    public static int generateLegalMoves(Position position, int us, int[] moves, int offset) {
+        int them = us ^ 1;
+        long own = position.pieces(us);
+        long enemy = position.pieces(them);
+        long occupied = position.occupied();
+        int king = position.kingSquare(us);
+        int count = offset;
+
+        long checkers = 0L;
+        long pinned = 0L;
+        long checkMask = ~0L;
+        if (king != Position.NO_SQUARE) {
+            checkers = position.checkers(us);
+            pinned = position.pinned(us);
+            long kingOccupied = occupied ^ Position.bit(king);
+            for (long targets = Attacks.kingAttacks(king) & ~own; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                if ((position.attackersTo(to, kingOccupied) & enemy) == 0) {
+                    moves[count++] = Move.of(king, to, (enemy & Position.bit(to)) != 0 ? Move.CAPTURE : 0);
+                }
+            }
+            //only the king can move out of a double check.
+            if ((checkers & (checkers - 1)) != 0) {
+                return count - offset;
+            }
+            if (checkers != 0) {
+                checkMask = Attacks.between(king, Long.numberOfTrailingZeros(checkers)) | checkers;
+            } else {
+                count = generateCastling(position, us, king, moves, count);
+            }
+        }
+        long targetMask = ~own & checkMask;
+
+        //a pinned knight can never move.
+        for (long knights = position.pieces(us, Position.KNIGHT) & ~pinned; knights != 0; knights &= knights - 1) {
+            int from = Long.numberOfTrailingZeros(knights);
+            count = addMoves(from, Attacks.knightAttacks(from) & targetMask, enemy, moves, count);
+        }
+        for (long bishops = position.pieces(us, Position.BISHOP) | position.pieces(us, Position.QUEEN);
+             bishops != 0; bishops &= bishops - 1) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            long targets = Attacks.bishopAttacks(from, occupied) & targetMask;
+            if ((pinned & Position.bit(from)) != 0) {
+                targets &= Attacks.line(king, from);
+            }
+            count = addMoves(from, targets, enemy, moves, count);
+        }
+        for (long rooks = position.pieces(us, Position.ROOK) | position.pieces(us, Position.QUEEN);
+             rooks != 0; rooks &= rooks - 1) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            long targets = Attacks.rookAttacks(from, occupied) & targetMask;
+            if ((pinned & Position.bit(from)) != 0) {
+                targets &= Attacks.line(king, from);
+            }
+            count = addMoves(from, targets, enemy, moves, count);
+        }
+        return generatePawnMoves(position, us, king, pinned, checkMask, moves, count) - offset;
+    }
+
+    /**
+     * Returns if a pseudo legal move from one square to another leaves the king of the moving piece safe.
+     * @param position
+     * @param from origin square of a piece.
+     * @param to destination square the piece can reach.
+     * @return
+     */
+    public static boolean isLegal(Position position, int from, int to) {
+        int piece = position.pieceAt(from);
+        if (piece == Position.NO_PIECE) {
+            return false;
+        }
+        int us = Position.colorOf(piece);
+        int king = position.kingSquare(us);
+        if (king == Position.NO_SQUARE) {
+            return true;
+        }
+        long enemy = position.pieces(us ^ 1);
+        if (from == king) {
+            return (position.attackersTo(to, position.occupied() ^ Position.bit(from)) & enemy) == 0;
+        }
+        if (Position.typeOf(piece) == Position.PAWN && to == position.getEnPassantSquare()
+                && Position.fileOf(from) != Position.fileOf(to) && !position.isOccupied(to)) {
+            return isLegalEnPassant(position, us, king, from, to);
+        }
+        long checkers = position.checkers(us);
+        if (checkers != 0) {
+            if ((checkers & (checkers - 1)) != 0) {
+                return false;
+            }
+            long checkMask = Attacks.between(king, Long.numberOfTrailingZeros(checkers)) | checkers;
+            if ((checkMask & Position.bit(to)) == 0) {
+                return false;
+            }
+        }
+        return (position.pinned(us) & Position.bit(from)) == 0 || (Attacks.line(king, from) & Position.bit(to)) != 0;
+    }
+
+    private static int addMoves(int from, long targets, long enemy, int[] moves, int count) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            moves[count++] = Move.of(from, to, (enemy & Position.bit(to)) != 0 ? Move.CAPTURE : 0);
+        }
+        return count;
+    }
+
+    private static int generatePawnMoves(Position position, int us, int king, long pinned, long checkMask,
+                                         int[] moves, int count) {
+        long enemy = position.pieces(us ^ 1);
+        long empty = ~position.occupied();
+        int forward = us == Position.WHITE ? 8 : -8;
+        int startRank = us == Position.WHITE ? 1 : 6;
+        int lastRank = us == Position.WHITE ? 7 : 0;
+        int enPassant = us == position.getSideToMove() ? position.getEnPassantSquare() : Position.NO_SQUARE;
+
+        for (long pawns = position.pieces(us, Position.PAWN); pawns != 0; pawns &= pawns - 1) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            long targets = 0L;
+            int single = from + forward;
+            if ((empty & Position.bit(single)) != 0) {
+                targets |= Position.bit(single);
+                if (Position.rankOf(from) == startRank && (empty & Position.bit(single + forward)) != 0) {
+                    targets |= Position.bit(single + forward);
+                }
+            }
+            long attacks = Attacks.pawnAttacks(us, from);
+            targets = (targets | (attacks & enemy)) & checkMask;
+            if ((pinned & Position.bit(from)) != 0) {
+                targets &= Attacks.line(king, from);
+            }
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                int flags = (enemy & Position.bit(to)) != 0 ? Move.CAPTURE : 0;
+                if (Position.rankOf(to) == lastRank) {
+                    for (int promotion : PROMOTIONS) {
+                        moves[count++] = Move.of(from, to, promotion, flags);
+                    }
+                } else {
+                    if (to - from == 2 * forward) {
+                        flags |= Move.DOUBLE_PUSH;
+                    }
+                    moves[count++] = Move.of(from, to, flags);
+                }
+            }
+            if (enPassant != Position.NO_SQUARE && (attacks & Position.bit(enPassant)) != 0
+                    && (king == Position.NO_SQUARE || isLegalEnPassant(position, us, king, from, enPassant))) {
+                moves[count++] = Move.of(from, enPassant, Move.CAPTURE | Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * En passant removes two pieces from the same rank, so the resulting occupancy is tested directly.
+     */
+    private static boolean isLegalEnPassant(Position position, int us, int king, int from, int to) {
+        int captured = to - (us == Position.WHITE ? 8 : -8);
+        long occupied = (position.occupied() ^ Position.bit(from) ^ Position.bit(captured)) | Position.bit(to);
+        return (position.attackersTo(king, occupied) & position.pieces(us ^ 1) & ~Position.bit(captured)) == 0;
+    }
+
+    private static int generateCastling(Position position, int us, int king, int[] moves, int count) {
+        int rights = position.getCastlingRights();
+        int kingside = us == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        int home = us == Position.WHITE ? 4 : 60;
+        if (king != home || (rights & (kingside | queenside)) == 0) {
+            return count;
+        }
+        long occupied = position.occupied();
+        long rooks = position.pieces(us, Position.ROOK);
+        int them = us ^ 1;
+        if ((rights & kingside) != 0 && (rooks & Position.bit(home + 3)) != 0
+                && (occupied & Attacks.between(home, home + 3)) == 0
+                && !position.isAttacked(home + 1, them) && !position.isAttacked(home + 2, them)) {
+            moves[count++] = Move.of(home, home + 2, Move.CASTLE);
+        }
+        if ((rights & queenside) != 0 && (rooks & Position.bit(home - 4)) != 0
+                && (occupied & Attacks.between(home, home - 4)) == 0
+                && !position.isAttacked(home - 1, them) && !position.isAttacked(home - 2, them)) {
+            moves[count++] = Move.of(home, home - 2, Move.CASTLE);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,762 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position.
+ * Squares are indexed from 0 (a1) to 63 (h8), file first, so that square = rank * 8 + file.
+ */
+public class Position {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+    public static final int PIECE_TYPES = 6;
+    public static final int NO_PIECE = -1;
+
+    public static final int NO_SQUARE = -1;
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+
+    //castling rights flags.
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    private static final int INITIAL_UNDO_CAPACITY = 16;
+
+    //castling rights kept when a piece moves from or to each square.
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            CASTLING_MASK[square] = ALL_CASTLING;
+        }
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    //one bitboard per piece type and color, indexed by color * PIECE_TYPES + type.
+    private final long[] pieces = new long[2 * PIECE_TYPES];
+    //one bitboard per color.
+    private final long[] colors = new long[2];
+    private long occupied;
+    //piece index on each square, or NO_PIECE.
+    private final byte[] board = new byte[64];
+    //squares attacked by each color, recomputed on the first query after the position changes.
+    private final long[] attacked = new long[2];
+    private boolean attacksValid;
+    //pieces giving check to and pieces pinned to the king of each color, recomputed lazily in the same way.
+    private final long[] checkers = new long[2];
+    private final long[] pinned = new long[2];
+    private final boolean[] pinsValid = new boolean[2];
+
+    private int sideToMove = WHITE;
+    private int castlingRights;
+    private int enPassantSquare = NO_SQUARE;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    //Zobrist key, updated incrementally by every change of the position.
+    private long key;
+    //Zobrist key of the pawns only, for the caches of pawn structure terms.
+    private long pawnKey;
+    //sums of the piece square tables from the point of view of white and game phase, updated in the same way.
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    //undo stack of the moves played with makeMove, small for the many idle boards of a server and doubled as a game
+    //or a search goes deeper, after which it is not allocated again.
+    private int[] undoMoves = new int[INITIAL_UNDO_CAPACITY];
+    private byte[] undoCaptured = new byte[INITIAL_UNDO_CAPACITY];
+    private byte[] undoCastlingRights = new byte[INITIAL_UNDO_CAPACITY];
+    private byte[] undoEnPassant = new byte[INITIAL_UNDO_CAPACITY];
+    private int[] undoHalfmoveClock = new int[INITIAL_UNDO_CAPACITY];
+    private long[] undoKeys = new long[INITIAL_UNDO_CAPACITY];
+    private int undoSize;
+
+    public Position() {
+        Arrays.fill(board, (byte) NO_PIECE);
+    }
+
+    /**
+     * Creates a copy of the specified position. The undo stack of the copy holds only the moves since the last
+     * capture or pawn move, which can be taken back and which let isRepetition see the positions played before the
+     * copy, as when an engine searches a copy of the position of a game.
+     * @param other position to be copied.
+     */
+    public Position(Position other) {
+        System.arraycopy(other.pieces, 0, this.pieces, 0, this.pieces.length);
+        System.arraycopy(other.colors, 0, this.colors, 0, this.colors.length);
+        System.arraycopy(other.board, 0, this.board, 0, this.board.length);
+        this.occupied = other.occupied;
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.key = other.key;
+        this.pawnKey = other.pawnKey;
+        this.middlegameScore = other.middlegameScore;
+        this.endgameScore = other.endgameScore;
+        this.phase = other.phase;
+        int history = Math.max(0, Math.min(other.undoSize, other.halfmoveClock));
+        while (undoMoves.length < history) {
+            growUndoStack();
+        }
+        int first = other.undoSize - history;
+        System.arraycopy(other.undoMoves, first, this.undoMoves, 0, history);
+        System.arraycopy(other.undoCaptured, first, this.undoCaptured, 0, history);
+        System.arraycopy(other.undoCastlingRights, first, this.undoCastlingRights, 0, history);
+        System.arraycopy(other.undoEnPassant, first, this.undoEnPassant, 0, history);
+        System.arraycopy(other.undoHalfmoveClock, first, this.undoHalfmoveClock, 0, history);
+        System.arraycopy(other.undoKeys, first, this.undoKeys, 0, history);
+        this.undoSize = history;
+    }
+
+    /**
+     * Returns the piece index of the piece of the specified color and type.
+     * @param color color of the piece.
+     * @param type type of the piece.
+     * @return
+     */
+    public static int piece(int color, int type) {
+        return color * PIECE_TYPES + type;
+    }
+
+    /**
+     * Returns the color of a piece index.
+     * @param piece piece index.
+     * @return
+     */
+    public static int colorOf(int piece) {
+        return piece / PIECE_TYPES;
+    }
+
+    /**
+     * Returns the type of a piece index.
+     * @param piece piece index.
+     * @return
+     */
+    public static int typeOf(int piece) {
+        return piece % PIECE_TYPES;
+    }
+
+    /**
+     * Returns the square index of a filerank string such as "e4".
+     * @param fileRank filerank string.
+     * @return
+     */
+    public static int square(String fileRank) {
+        return square(fileRank.charAt(0) - 'a', fileRank.charAt(1) - '1');
+    }
+
+    /**
+     * Returns the square index of the specified file and rank(0 based, rank 0 is the first rank).
+     * @param file file index.
+     * @param rank rank index.
+     * @return
+     */
+    public static int square(int file, int rank) {
+        return rank * 8 + file;
+    }
+
+    /**
+     * Returns the file index(0 based) of a square.
+     * @param square
+     * @return
+     */
+    public static int fileOf(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Returns the rank index(0 based) of a square.
+     * @param square
+     * @return
+     */
+    public static int rankOf(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Returns the filerank string of a square index.
+     * @param square
+     * @return
+     */
+    public static String squareName(int square) {
+        return ChessBoard.FILES[fileOf(square)] + (rankOf(square) + 1);
+    }
+
+    /**
+     * Returns the bitboard with only the specified square set.
+     * @param square
+     * @return
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Returns the color index of a chess piece kind.
+     * @param kind WHITE_KIND or BLACK_KIND.
+     * @return
+     */
+    public static int colorOf(String kind) {
+        return ChessBoard.WHITE_KIND.equals(kind) ? WHITE : BLACK;
+    }
+
+    private void invalidate() {
+        attacksValid = false;
+        pinsValid[WHITE] = false;
+        pinsValid[BLACK] = false;
+    }
+
+    /**
+     * Places a piece on an empty square.
+     * @param piece piece index.
+     * @param square
+     */
+    public void put(int piece, int square) {
+        long state = stateKey();
+        addPiece(piece, square);
+        invalidate();
+        key ^= state ^ stateKey();
+    }
+
+    /**
+     * Removes the piece on the specified square, if any.
+     * @param square
+     */
+    public void remove(int square) {
+        if (board[square] != NO_PIECE) {
+            long state = stateKey();
+            removePiece(board[square], square);
+            invalidate();
+            key ^= state ^ stateKey();
+        }
+    }
+
+    /**
+     * Plays a legal move, such as one produced by MoveGenerator, on the position.
+     * The state needed to take the move back is pushed on the undo stack.
+     * @param move encoded move.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = board[from];
+        int us = colorOf(piece);
+        int capturedSquare = to;
+        if (Move.isEnPassant(move)) {
+            capturedSquare = us == WHITE ? to - 8 : to + 8;
+        }
+        int captured = board[capturedSquare];
+
+        if (undoSize == undoMoves.length) {
+            growUndoStack();
+        }
+        undoMoves[undoSize] = move;
+        undoCaptured[undoSize] = (byte) captured;
+        undoCastlingRights[undoSize] = (byte) castlingRights;
+        undoEnPassant[undoSize] = (byte) enPassantSquare;
+        undoHalfmoveClock[undoSize] = halfmoveClock;
+        undoKeys[undoSize] = key;
+        undoSize++;
+
+        key ^= stateKey();
+        if (captured != NO_PIECE) {
+            removePiece(captured, capturedSquare);
+        }
+        removePiece(piece, from);
+        addPiece(Move.isPromotion(move) ? piece(us, Move.promotion(move)) : piece, to);
+        if (Move.isCastle(move)) {
+            int rook = piece(us, ROOK);
+            boolean kingside = to > from;
+            removePiece(rook, kingside ? from + 3 : from - 4);
+            addPiece(rook, kingside ? from + 1 : from - 1);
+        }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = Move.isDoublePush(move) ? (from + to) >>> 1 : NO_SQUARE;
+        halfmoveClock = typeOf(piece) == PAWN || captured != NO_PIECE ? 0 : halfmoveClock + 1;
+        if (us == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = us ^ 1;
+        key ^= stateKey();
+        invalidate();
+    }
+
+    /**
+     * Takes back the last move played with makeMove.
+     */
+    public void unmakeMove() {
+        undoSize--;
+        int move = undoMoves[undoSize];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = board[to];
+        int us = colorOf(piece);
+
+        removePiece(piece, to);
+        addPiece(Move.isPromotion(move) ? piece(us, PAWN) : piece, from);
+        if (Move.isCastle(move)) {
+            int rook = piece(us, ROOK);
+            boolean kingside = to > from;
+            removePiece(rook, kingside ? from + 1 : from - 1);
+            addPiece(rook, kingside ? from + 3 : from - 4);
+        }
+        int captured = undoCaptured[undoSize];
+        if (captured != NO_PIECE) {
+            addPiece(captured, Move.isEnPassant(move) ? (us == WHITE ? to - 8 : to + 8) : to);
+        }
+        castlingRights = undoCastlingRights[undoSize];
+        enPassantSquare = undoEnPassant[undoSize];
+        halfmoveClock = undoHalfmoveClock[undoSize];
+        key = undoKeys[undoSize];
+        if (us == BLACK) {
+            fullmoveNumber--;
+        }
+        sideToMove = us;
+        invalidate();
+    }
+
+    /**
+     * Returns the number of moves on the undo stack.
+     * @return
+     */
+    public int getUndoSize() {
+        return undoSize;
+    }
+
+    /**
+     * Returns the last move played with makeMove, or Move.NONE.
+     * @return
+     */
+    public int getLastMove() {
+        return undoSize == 0 ? Move.NONE : undoMoves[undoSize - 1];
+    }
+
+    /**
+     * Returns the piece captured by the last move played with makeMove, or NO_PIECE.
+     * @return
+     */
+    public int getLastCaptured() {
+        return undoSize == 0 ? NO_PIECE : undoCaptured[undoSize - 1];
+    }
+
+    private void growUndoStack() {
+        int capacity = undoMoves.length * 2;
+        undoMoves = Arrays.copyOf(undoMoves, capacity);
+        undoCaptured = Arrays.copyOf(undoCaptured, capacity);
+        undoCastlingRights = Arrays.copyOf(undoCastlingRights, capacity);
+        undoEnPassant = Arrays.copyOf(undoEnPassant, capacity);
+        undoHalfmoveClock = Arrays.copyOf(undoHalfmoveClock, capacity);
+        undoKeys = Arrays.copyOf(undoKeys, capacity);
+    }
+
+    private void addPiece(int piece, int square) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[piece / PIECE_TYPES] |= bit;
+        occupied |= bit;
+        board[square] = (byte) piece;
+        key ^= Zobrist.piece(piece, square);
+        if (typeOf(piece) == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        middlegameScore += PieceSquareTables.middlegame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phase(piece);
+    }
+
+    private void removePiece(int piece, int square) {
+        long mask = ~(1L << square);
+        pieces[piece] &= mask;
+        colors[piece / PIECE_TYPES] &= mask;
+        occupied &= mask;
+        board[square] = NO_PIECE;
+        key ^= Zobrist.piece(piece, square);
+        if (typeOf(piece) == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        middlegameScore -= PieceSquareTables.middlegame(piece, square);
+        endgameScore -= PieceSquareTables.endgame(piece, square);
+        phase -= PieceSquareTables.phase(piece);
+    }
+
+    /**
+     * Returns the part of the key that does not come from the pieces. The en passant file is only included when
+     * a pawn of the side to move can capture on the en passant square, so that transpositions have the same key.
+     */
+    private long stateKey() {
+        long state = Zobrist.castling(castlingRights);
+        if (sideToMove == BLACK) {
+            state ^= Zobrist.blackToMove();
+        }
+        if (enPassantSquare != NO_SQUARE
+                && (Attacks.pawnAttacks(sideToMove ^ 1, enPassantSquare) & pieces[piece(sideToMove, PAWN)]) != 0) {
+            state ^= Zobrist.enPassant(fileOf(enPassantSquare));
+        }
+        return state;
+    }
+
+    /**
+     * Returns if the position already occurred since the last capture or pawn move, as far as the undo stack goes.
+     * @return
+     */
+    public boolean isRepetition() {
+        int first = Math.max(0, undoSize - halfmoveClock);
+        //the side to move is the same every second position, and a position cannot repeat in less than 4 plies.
+        for (int i = undoSize - 4; i >= first; i -= 2) {
+            if (undoKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the Zobrist key of the position.
+     * @return
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the sum of the middlegame piece square values, material included, from the point of view of white.
+     * @return
+     */
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    /**
+     * Returns the sum of the endgame piece square values, material included, from the point of view of white.
+     * @return
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Returns the game phase, from PieceSquareTables.MAX_PHASE with all the pieces to 0 with only pawns and kings.
+     * It can exceed MAX_PHASE after promotions.
+     * @return
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the Zobrist key of the pawns of both colors, which is 0 without pawns.
+     * @return
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Computes the Zobrist key of the position from scratch, which is always equal to getKey.
+     * @return
+     */
+    public long computeKey() {
+        long result = stateKey();
+        for (int square = 0; square < 64; square++) {
+            if (board[square] != NO_PIECE) {
+                result ^= Zobrist.piece(board[square], square);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes every piece from the position and clears the undo stack.
+     */
+    public void clear() {
+        for (int piece = 0; piece < pieces.length; piece++) {
+            pieces[piece] = 0L;
+        }
+        colors[WHITE] = 0L;
+        colors[BLACK] = 0L;
+        occupied = 0L;
+        Arrays.fill(board, (byte) NO_PIECE);
+        undoSize = 0;
+        invalidate();
+        key = stateKey();
+        pawnKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+    }
+
+    /**
+     * Returns the piece index on the specified square or NO_PIECE if the square is empty.
+     * @param square
+     * @return
+     */
+    public int pieceAt(int square) {
+        return board[square];
+    }
+
+    /**
+     * Returns the color on the specified square or NO_PIECE if the square is empty.
+     * @param square
+     * @return
+     */
+    public int colorAt(int square) {
+        long bit = 1L << square;
+        if ((colors[WHITE] & bit) != 0) {
+            return WHITE;
+        } else if ((colors[BLACK] & bit) != 0) {
+            return BLACK;
+        }
+        return NO_PIECE;
+    }
+
+    /**
+     * Returns if the specified square is occupied.
+     * @param square
+     * @return
+     */
+    public boolean isOccupied(int square) {
+        return (occupied & (1L << square)) != 0;
+    }
+
+    /**
+     * Returns the bitboard of the pieces of the specified color and type.
+     * @param color
+     * @param type
+     * @return
+     */
+    public long pieces(int color, int type) {
+        return pieces[color * PIECE_TYPES + type];
+    }
+
+    /**
+     * Returns the bitboard of all the pieces of the specified color.
+     * @param color
+     * @return
+     */
+    public long pieces(int color) {
+        return colors[color];
+    }
+
+    /**
+     * Returns the bitboard of all the occupied squares.
+     * @return
+     */
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * Returns the square of the king of the specified color or NO_SQUARE if there is none.
+     * @param color
+     * @return
+     */
+    public int kingSquare(int color) {
+        long king = pieces[color * PIECE_TYPES + KING];
+        return king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Returns the color to move.
+     * @return
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int sideToMove) {
+        key ^= stateKey();
+        this.sideToMove = sideToMove;
+        key ^= stateKey();
+    }
+
+    /**
+     * Returns the castling rights as a combination of the castling flags.
+     * @return
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        key ^= stateKey();
+        this.castlingRights = castlingRights;
+        key ^= stateKey();
+    }
+
+    /**
+     * Returns the square a pawn can capture en passant on, or NO_SQUARE.
+     * @return
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        key ^= stateKey();
+        this.enPassantSquare = enPassantSquare;
+        key ^= stateKey();
+    }
+
+    /**
+     * Returns the number of moves since the last capture or pawn move.
+     * @return
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Returns the number of the full move, which starts at 1 and is incremented after each move of black.
+     * @return
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Returns the bitboard of the squares attacked by the pieces of the specified color.
+     * @param color
+     * @return
+     */
+    public long attackedSquares(int color) {
+        if (!attacksValid) {
+            attacked[WHITE] = computeAttacks(WHITE);
+            attacked[BLACK] = computeAttacks(BLACK);
+            attacksValid = true;
+        }
+        return attacked[color];
+    }
+
+    /**
+     * Returns if the specified square is attacked by a piece of the specified color.
+     * @param square
+     * @param byColor
+     * @return
+     */
+    public boolean isAttacked(int square, int byColor) {
+        return (attackedSquares(byColor) & (1L << square)) != 0;
+    }
+
+    /**
+     * Returns if the king of the specified color is attacked.
+     * @param color
+     * @return
+     */
+    public boolean isInCheck(int color) {
+        //the checkers are cached with the pins, which the move generator needs anyway.
+        return checkers(color) != 0;
+    }
+
+    /**
+     * Returns the bitboard of the pieces of both colors attacking a square with the specified occupancy.
+     * @param square
+     * @param occupied bitboard of the occupied squares.
+     * @return
+     */
+    public long attackersTo(int square, long occupied) {
+        long bishops = pieces[BISHOP] | pieces[QUEEN] | pieces[PIECE_TYPES + BISHOP] | pieces[PIECE_TYPES + QUEEN];
+        long rooks = pieces[ROOK] | pieces[QUEEN] | pieces[PIECE_TYPES + ROOK] | pieces[PIECE_TYPES + QUEEN];
+        return (Attacks.pawnAttacks(BLACK, square) & pieces[PAWN])
+                | (Attacks.pawnAttacks(WHITE, square) & pieces[PIECE_TYPES + PAWN])
+                | (Attacks.knightAttacks(square) & (pieces[KNIGHT] | pieces[PIECE_TYPES + KNIGHT]))
+                | (Attacks.kingAttacks(square) & (pieces[KING] | pieces[PIECE_TYPES + KING]))
+                | (Attacks.bishopAttacks(square, occupied) & bishops)
+                | (Attacks.rookAttacks(square, occupied) & rooks);
+    }
+
+    private long computeAttacks(int color) {
+        int base = color * PIECE_TYPES;
+        long attacks = 0L;
+        long pawns = pieces[base + PAWN];
+        if (color == WHITE) {
+            attacks |= ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9);
+        } else {
+            attacks |= ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7);
+        }
+        for (long knights = pieces[base + KNIGHT]; knights != 0; knights &= knights - 1) {
+            attacks |= Attacks.knightAttacks(Long.numberOfTrailingZeros(knights));
+        }
+        for (long bishops = pieces[base + BISHOP] | pieces[base + QUEEN]; bishops != 0; bishops &= bishops - 1) {
+            attacks |= Attacks.bishopAttacks(Long.numberOfTrailingZeros(bishops), occupied);
+        }
+        for (long rooks = pieces[base + ROOK] | pieces[base + QUEEN]; rooks != 0; rooks &= rooks - 1) {
+            attacks |= Attacks.rookAttacks(Long.numberOfTrailingZeros(rooks), occupied);
+        }
+        long king = pieces[base + KING];
+        if (king != 0) {
+            attacks |= Attacks.kingAttacks(Long.numberOfTrailingZeros(king));
+        }
+        return attacks;
+    }
+
+    /**
+     * Returns the bitboard of the enemy pieces giving check to the king of the specified color.
+     * @param color
+     * @return
+     */
+    public long checkers(int color) {
+        computePins(color);
+        return checkers[color];
+    }
+
+    /**
+     * Returns the bitboard of the pieces of the specified color that are pinned to their king.
+     * @param color
+     * @return
+     */
+    public long pinned(int color) {
+        computePins(color);
+        return pinned[color];
+    }
+
+    private void computePins(int color) {
+        if (pinsValid[color]) {
+            return;
+        }
+        int king = kingSquare(color);
+        long pins = 0L;
+        long checks = 0L;
+        if (king != NO_SQUARE) {
+            int enemy = (color ^ 1) * PIECE_TYPES;
+            checks = attackersTo(king, occupied) & colors[color ^ 1];
+            //enemy sliders that would attack the king on an empty board.
+            long snipers = (Attacks.rookAttacks(king, 0L) & (pieces[enemy + ROOK] | pieces[enemy + QUEEN]))
+                    | (Attacks.bishopAttacks(king, 0L) & (pieces[enemy + BISHOP] | pieces[enemy + QUEEN]));
+            for (; snipers != 0; snipers &= snipers - 1) {
+                long blockers = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+                if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & colors[color]) != 0) {
+                    pins |= blockers;
+                }
+            }
+        }
+        checkers[color] = checks;
+        pinned[color] = pins;
+        pinsValid[color] = true;
+    }
+}
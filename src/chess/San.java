@@ -0,0 +1,158 @@
+package chess;
+
+/**
+ * Standard Algebraic Notation(SAN) of moves, such as "e4", "Nbd7", "exd8=Q+" or "O-O".
+ * A SAN move only names the piece type, the destination and what is needed to tell it apart from the other legal
+ * moves, so it is decoded against the legal moves of the position.
+ */
+public final class San {
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    /**
+     * Returns the legal move of a position written in SAN. Check, mate and annotation suffixes are ignored.
+     * @param position
+     * @param san SAN move.
+     * @param moves buffer of at least MoveGenerator.MAX_MOVES moves, used for the legal moves.
+     * @return encoded move, or Move.NONE if the SAN move is malformed, illegal or ambiguous.
+     */
+    public static int parse(Position position, CharSequence san, int[] moves) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+
+        if (san.charAt(0) == 'O' || san.charAt(0) == '0') {
+            //O-O is 3 characters and O-O-O is 5.
+            boolean kingside = end == 3;
+            if (end != 3 && end != 5) {
+                return Move.NONE;
+            }
+            for (int i = 0; i < count; i++) {
+                if (Move.isCastle(moves[i]) && (Move.to(moves[i]) > Move.from(moves[i])) == kingside) {
+                    return moves[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int type = PIECE_LETTERS.indexOf(san.charAt(0));
+        int start = 1;
+        if (type <= Position.PAWN) {
+            type = Position.PAWN;
+            start = 0;
+        }
+        int promotion = 0;
+        if (type == Position.PAWN && end >= 2 && PIECE_LETTERS.indexOf(san.charAt(end - 1)) > Position.PAWN) {
+            promotion = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+            end -= san.charAt(end - 2) == '=' ? 2 : 1;
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int toFile = san.charAt(end - 2) - 'a';
+        int toRank = san.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return Move.NONE;
+        }
+        int to = Position.square(toFile, toRank);
+
+        //what is left between the piece and the destination is an optional origin file and rank and 'x'.
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (Move.to(move) == to && Position.typeOf(position.pieceAt(from)) == type
+                    && Move.promotion(move) == promotion && !Move.isCastle(move)
+                    && (fromFile < 0 || Position.fileOf(from) == fromFile)
+                    && (fromRank < 0 || Position.rankOf(from) == fromRank)) {
+                if (found != Move.NONE) {
+                    return Move.NONE;
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns a legal move of a position in SAN, with the check or mate suffix.
+     * The move is played and taken back on the position to find the suffix.
+     * @param position
+     * @param move encoded legal move.
+     * @param moves buffer of at least MoveGenerator.MAX_MOVES moves, used for the legal moves.
+     * @return
+     */
+    public static String format(Position position, int move, int[] moves) {
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Position.typeOf(position.pieceAt(from));
+        if (Move.isCastle(move)) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            if (type == Position.PAWN) {
+                if (Move.isCapture(move)) {
+                    san.append((char) ('a' + Position.fileOf(from)));
+                }
+            } else {
+                san.append(PIECE_LETTERS.charAt(type));
+                //name the origin file, else rank, else both, if another piece of the type reaches the square.
+                int count = MoveGenerator.generateLegalMoves(position, moves);
+                boolean ambiguous = false;
+                boolean sameFile = false;
+                boolean sameRank = false;
+                for (int i = 0; i < count; i++) {
+                    int other = Move.from(moves[i]);
+                    if (Move.to(moves[i]) == to && other != from
+                            && Position.typeOf(position.pieceAt(other)) == type) {
+                        ambiguous = true;
+                        sameFile |= Position.fileOf(other) == Position.fileOf(from);
+                        sameRank |= Position.rankOf(other) == Position.rankOf(from);
+                    }
+                }
+                if (ambiguous) {
+                    if (!sameFile) {
+                        san.append((char) ('a' + Position.fileOf(from)));
+                    } else if (!sameRank) {
+                        san.append((char) ('1' + Position.rankOf(from)));
+                    } else {
+                        san.append(Position.squareName(from));
+                    }
+                }
+            }
+            if (Move.isCapture(move)) {
+                san.append('x');
+            }
+            san.append(Position.squareName(to));
+            if (Move.isPromotion(move)) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+        }
+        position.makeMove(move);
+        if (position.isInCheck(position.getSideToMove())) {
+            san.append(MoveGenerator.generateLegalMoves(position, moves) == 0 ? '#' : '+');
+        }
+        position.unmakeMove();
+        return san.toString();
+    }
+}
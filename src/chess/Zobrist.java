@@ -0,0 +1,83 @@
+package chess;
+
+/**
+ * Random keys of Zobrist hashing.
+ * The key of a position is the exclusive or of the keys of its pieces on their squares, its castling rights,
+ * the file of its en passant square and the side to move, so a move updates it with a few exclusive ors.
+ * The keys are generated from a fixed seed so that the same position has the same key in every run.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[2 * Position.PIECE_TYPES][64];
+    private static final long[] CASTLING = new long[Position.ALL_CASTLING + 1];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    private static long seed = 0x9E3779B97F4A7C15L;
+
+    static {
+        for (int piece = 0; piece < PIECE_SQUARE.length; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = nextRandom();
+            }
+        }
+        //the key of a combination of rights is the exclusive or of the keys of each right.
+        long[] rights = {nextRandom(), nextRandom(), nextRandom(), nextRandom()};
+        for (int castling = 0; castling < CASTLING.length; castling++) {
+            for (int right = 0; right < rights.length; right++) {
+                if ((castling & (1 << right)) != 0) {
+                    CASTLING[castling] ^= rights[right];
+                }
+            }
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = nextRandom();
+        }
+        BLACK_TO_MOVE = nextRandom();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a piece on a square.
+     * @param piece piece index.
+     * @param square
+     * @return
+     */
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    /**
+     * Returns the key of a combination of castling flags.
+     * @param castlingRights
+     * @return
+     */
+    public static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * Returns the key of the file of an en passant square.
+     * @param file file index.
+     * @return
+     */
+    public static long enPassant(int file) {
+        return EN_PASSANT_FILE[file];
+    }
+
+    /**
+     * Returns the key included when black is to move.
+     * @return
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    private static long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -0,0 +1,173 @@
+package chess.book;
+
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.San;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Opening book read from a memory-mapped file of entries in the layout of a Polyglot book:
+ * <pre>
+ *     long   Zobrist key of the position
+ *     short  move, see Move.toShort
+ *     short  weight, unsigned
+ *     int    learn, unused and 0
+ * </pre>
+ * The entries are sorted by key as an unsigned number, and the entries of a key by decreasing weight, so the
+ * entries of a position are found by binary search. The keys are the Zobrist keys of Position rather than the
+ * Polyglot keys, so Polyglot books of other programs can not be read. A probe reads the mapped file in place and
+ * allocates nothing, and a book can be probed by several threads at once.
+ */
+public class OpeningBook implements Closeable {
+    public static final int ENTRY_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+
+    /**
+     * Opens a book file written by OpeningBookBuilder.
+     * @param path
+     * @throws IOException
+     */
+    public OpeningBook(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Not an opening book file: " + path);
+        }
+        this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        this.entryCount = (int) (size / ENTRY_SIZE);
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public long getKey(int entry) {
+        return entries.getLong(entry * ENTRY_SIZE);
+    }
+
+    /**
+     * Returns the move of an entry, see Move.toShort.
+     * @param entry
+     * @return
+     */
+    public short getMove(int entry) {
+        return entries.getShort(entry * ENTRY_SIZE + 8);
+    }
+
+    public int getWeight(int entry) {
+        return Short.toUnsignedInt(entries.getShort(entry * ENTRY_SIZE + 10));
+    }
+
+    /**
+     * Returns the first entry of a position.
+     * @param key Zobrist key of the position.
+     * @return index of the entry, or -1 if the position is not in the book.
+     */
+    public int findFirst(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(getKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < entryCount && getKey(low) == key ? low : -1;
+    }
+
+    /**
+     * Returns the book move of a position with the highest weight.
+     * @param position
+     * @param moves buffer of at least MoveGenerator.MAX_MOVES moves, used for the legal moves.
+     * @return encoded legal move, or Move.NONE if the position is not in the book.
+     */
+    public int bestMove(Position position, int[] moves) {
+        return weightedMove(position, moves, 0.0);
+    }
+
+    /**
+     * Returns a book move of a position chosen with a probability proportional to its weight.
+     * @param position
+     * @param moves buffer of at least MoveGenerator.MAX_MOVES moves, used for the legal moves.
+     * @param choice number from 0 inclusive to 1 exclusive which selects the move, such as a random number.
+     *               0 selects the move with the highest weight.
+     * @return encoded legal move, or Move.NONE if the position is not in the book.
+     */
+    public int weightedMove(Position position, int[] moves, double choice) {
+        long key = position.getKey();
+        int first = findFirst(key);
+        if (first < 0) {
+            return Move.NONE;
+        }
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        //an entry whose move is not legal, which only a key collision can cause, is ignored.
+        long total = 0L;
+        for (int entry = first; entry < entryCount && getKey(entry) == key; entry++) {
+            if (Move.fromShort(getMove(entry), moves, count) != Move.NONE) {
+                total += getWeight(entry);
+            }
+        }
+        long target = (long) (choice * total);
+        for (int entry = first; entry < entryCount && getKey(entry) == key; entry++) {
+            int move = Move.fromShort(getMove(entry), moves, count);
+            if (move != Move.NONE) {
+                target -= getWeight(entry);
+                if (target < 0) {
+                    return move;
+                }
+            }
+        }
+        return Move.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Usage: OpeningBook book [fen] to print the book moves of a position, by default the starting position.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        StringBuilder fen = new StringBuilder();
+        for (int i = 1; i < args.length; i++) {
+            fen.append(args[i]).append(' ');
+        }
+        Position position = Fen.parse(args.length > 1 ? fen.toString() : Fen.STARTING_POSITION);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        try (OpeningBook book = new OpeningBook(Paths.get(args[0]))) {
+            System.out.println(book.getEntryCount() + " entries");
+            int first = book.findFirst(position.getKey());
+            if (first < 0) {
+                System.out.println("Position not in book");
+                return;
+            }
+            for (int entry = first; entry < book.getEntryCount() && book.getKey(entry) == position.getKey();
+                 entry++) {
+                int move = Move.fromShort(book.getMove(entry), moves,
+                        MoveGenerator.generateLegalMoves(position, moves));
+                if (move != Move.NONE) {
+                    System.out.printf("%-8s %6d%n", San.format(position, move, new int[MoveGenerator.MAX_MOVES]),
+                            book.getWeight(entry));
+                }
+            }
+        }
+    }
+}
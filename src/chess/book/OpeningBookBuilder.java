@@ -0,0 +1,295 @@
+package chess.book;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.Position;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnVisitor;
+import chess.record.GameRecordReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Builds an opening book from the games replayed by a PgnReader or a GameRecordReader.
+ * Every move of the first plies of a game is added with a weight of 2 if the side which played it won the game,
+ * 1 for a draw and 0 for a loss, as in Polyglot books. Games without a result are left out.
+ * The (key, move, weight) entries are kept in primitive arrays which are sorted and merged whenever they are
+ * full, so the memory used grows with the number of distinct entries rather than the number of games.
+ */
+public class OpeningBookBuilder implements PgnVisitor {
+    public static final int DEFAULT_MAX_PLIES = 20;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPlies;
+    private int minGames = 1;
+
+    //entries, sorted and merged up to sorted.
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private short[] moves = new short[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    private int[] games = new int[INITIAL_CAPACITY];
+    private int size;
+
+    //moves of the current game.
+    private final long[] gameKeys;
+    private final short[] gameMoves;
+    private int gamePlies;
+    private int firstColor;
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * @param maxPlies number of plies of each game added to the book.
+     */
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+        this.gameKeys = new long[maxPlies];
+        this.gameMoves = new short[maxPlies];
+    }
+
+    /**
+     * Sets the number of games a move needs to be written to the book.
+     * @param minGames
+     */
+    public void setMinGames(int minGames) {
+        this.minGames = minGames;
+    }
+
+    @Override
+    public void startGame(long gameNumber, Map<String, String> tags, ChessBoard chessBoard) {
+        gamePlies = 0;
+        firstColor = chessBoard.getPosition().getSideToMove();
+    }
+
+    @Override
+    public void move(ChessBoard chessBoard, int move) {
+        if (gamePlies < maxPlies) {
+            gameKeys[gamePlies] = chessBoard.getKey();
+            gameMoves[gamePlies] = Move.toShort(move);
+            gamePlies++;
+        }
+    }
+
+    @Override
+    public void endGame(String result) {
+        int whiteWeight;
+        if ("1-0".equals(result)) {
+            whiteWeight = 2;
+        } else if ("0-1".equals(result)) {
+            whiteWeight = 0;
+        } else if ("1/2-1/2".equals(result)) {
+            whiteWeight = 1;
+        } else {
+            return;
+        }
+        for (int ply = 0; ply < gamePlies; ply++) {
+            int color = firstColor ^ (ply & 1);
+            add(gameKeys[ply], gameMoves[ply], color == Position.WHITE ? whiteWeight : 2 - whiteWeight);
+        }
+    }
+
+    /**
+     * Adds a move of a position.
+     * @param key Zobrist key of the position.
+     * @param move see Move.toShort.
+     * @param weight
+     */
+    public void add(long key, short move, int weight) {
+        if (size == keys.length) {
+            compact();
+            if (size > keys.length * 3 / 4) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+                moves = Arrays.copyOf(moves, keys.length);
+                weights = Arrays.copyOf(weights, keys.length);
+                games = Arrays.copyOf(games, keys.length);
+            }
+        }
+        keys[size] = key;
+        moves[size] = move;
+        weights[size] = weight;
+        games[size] = 1;
+        size++;
+    }
+
+    /**
+     * Sorts the entries by key and move and merges the entries of the same move.
+     */
+    private void compact() {
+        sort(0, size);
+        int merged = 0;
+        for (int i = 0; i < size; i++) {
+            if (merged > 0 && keys[merged - 1] == keys[i] && moves[merged - 1] == moves[i]) {
+                weights[merged - 1] += weights[i];
+                games[merged - 1] += games[i];
+            } else {
+                keys[merged] = keys[i];
+                moves[merged] = moves[i];
+                weights[merged] = weights[i];
+                games[merged] = games[i];
+                merged++;
+            }
+        }
+        size = merged;
+    }
+
+    /**
+     * Returns the number of distinct (position, move) entries added so far.
+     * @return
+     */
+    public int getEntryCount() {
+        compact();
+        return size;
+    }
+
+    /**
+     * Writes the book. The weights of a position are scaled down to fit in 16 bits if needed, and the moves
+     * played in fewer than minGames games or without weight are left out.
+     * @param path
+     * @return number of entries written.
+     * @throws IOException
+     */
+    public int write(Path path) throws IOException {
+        compact();
+        int written = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(OpeningBook.ENTRY_SIZE * 4096);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int start = 0, end; start < size; start = end) {
+                end = start + 1;
+                int maxWeight = weights[start];
+                while (end < size && keys[end] == keys[start]) {
+                    maxWeight = Math.max(maxWeight, weights[end]);
+                    end++;
+                }
+                sortByWeight(start, end);
+                for (int i = start; i < end; i++) {
+                    long weight = maxWeight > MAX_WEIGHT ? (long) weights[i] * MAX_WEIGHT / maxWeight : weights[i];
+                    if (games[i] < minGames || weight == 0) {
+                        continue;
+                    }
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(keys[i]).putShort(moves[i]).putShort((short) weight).putInt(0);
+                    written++;
+                }
+            }
+            flush(channel, buffer);
+        }
+        return written;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sorts the entries of a range by unsigned key and move, with a quicksort which recurses into the smaller part.
+     */
+    private void sort(int from, int to) {
+        while (to - from > 1) {
+            int middle = (from + to) >>> 1;
+            long pivotKey = keys[middle];
+            short pivotMove = moves[middle];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(i, pivotKey, pivotMove) < 0) {
+                    i++;
+                }
+                while (compare(j, pivotKey, pivotMove) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (j + 1 - from < to - i) {
+                sort(from, j + 1);
+                from = i;
+            } else {
+                sort(i, to);
+                to = j + 1;
+            }
+        }
+    }
+
+    private int compare(int entry, long key, short move) {
+        int byKey = Long.compareUnsigned(keys[entry], key);
+        return byKey != 0 ? byKey : Short.compare(moves[entry], move);
+    }
+
+    /**
+     * Sorts the entries of one position by decreasing weight, a position has few moves.
+     */
+    private void sortByWeight(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && weights[j] > weights[j - 1]; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        short move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+        int count = games[i];
+        games[i] = games[j];
+        games[j] = count;
+    }
+
+    /**
+     * Usage: OpeningBookBuilder book [maxPlies] input... to build a book from PGN files, whose names end with
+     * .pgn, and game record files.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int first = 1;
+        int maxPlies = DEFAULT_MAX_PLIES;
+        if (args.length > 2 && args[1].matches("\\d+")) {
+            maxPlies = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+        long start = System.nanoTime();
+        for (int i = first; i < args.length; i++) {
+            Path input = Paths.get(args[i]);
+            if (args[i].endsWith(".pgn")) {
+                try (PgnReader reader = new PgnReader(input)) {
+                    reader.read(builder);
+                }
+            } else {
+                ChessBoard chessBoard = new ChessBoard();
+                try (GameRecordReader reader = new GameRecordReader(input)) {
+                    for (long game = 0; game < reader.getGames(); game++) {
+                        reader.replay(game, chessBoard, builder);
+                    }
+                }
+            }
+        }
+        int entries = builder.write(Paths.get(args[0]));
+        System.out.printf("%d book entries written in %.2f s%n", entries, (System.nanoTime() - start) / 1e9);
+    }
+}
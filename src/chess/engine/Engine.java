@@ -0,0 +1,480 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.book.OpeningBook;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chess engine searching the best move of a position.
+ * The search is an iterative deepening principal variation search(PVS) with alpha-beta pruning and a quiescence
+ * search of the captures at the leaves. Results are kept in a transposition table, which cuts off positions
+ * reached again with enough depth. Moves are ordered by the principal variation of the previous depth or the
+ * move of the transposition table, then captures by most valuable victim / least valuable attacker(MVV-LVA),
+ * then killer moves and the history heuristic. The moves are played with make/unmake on a copy of the position,
+ * so the tree is searched without allocating per node.
+ * An engine is not thread safe, but stop may be called from any thread.
+ */
+public class Engine {
+    public static final int INFINITE = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 128;
+
+    //piece values in centipawns indexed by piece type for the move ordering, the king is never captured.
+    private static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    //the limits are checked once every this many nodes plus one.
+    private static final int CHECK_INTERVAL = 2047;
+
+    private static final int PV_MOVE_SCORE = 3_000_000;
+    private static final int CAPTURE_SCORE = 2_000_000;
+    private static final int FIRST_KILLER_SCORE = 1_000_002;
+    private static final int SECOND_KILLER_SCORE = 1_000_001;
+    private static final int MAX_HISTORY = 1_000_000;
+
+    //move and move score buffers per ply.
+    private final int[][] moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    //quiet moves that caused a beta cutoff, two per ply.
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    //bonus of the quiet moves that caused a beta cutoff, indexed by piece and destination square.
+    private final int[][] history = new int[2 * Position.PIECE_TYPES][64];
+    //triangular table of the principal variation of each ply.
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    //principal variation of the previous depth, searched first.
+    private final int[] previousPv = new int[MAX_PLY + 1];
+    private int previousPvLength;
+    private boolean followPv;
+
+    private final TranspositionTable transpositionTable;
+    private final Evaluator evaluator;
+    private OpeningBook openingBook;
+    private Position position;
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private volatile boolean stopped;
+
+    /**
+     * Creates an engine with its own transposition table of the default size and the tapered evaluation.
+     */
+    public Engine() {
+        this(new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Creates an engine using the specified transposition table, which may be shared with other engines.
+     * @param transpositionTable
+     */
+    public Engine(TranspositionTable transpositionTable) {
+        this(transpositionTable, new TaperedEvaluator());
+    }
+
+    /**
+     * @param transpositionTable table, which may be shared with other engines.
+     * @param evaluator evaluator used only by this engine.
+     */
+    public Engine(TranspositionTable transpositionTable, Evaluator evaluator) {
+        this.transpositionTable = transpositionTable;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Returns the best move for the side to move of the chess board. The chess board itself is not modified.
+     * The search runs on a copy of the position which keeps the moves of the game since the last capture or pawn
+     * move, so that a repetition of an earlier position of the game is scored as a draw.
+     * @param chessBoard
+     * @param limits
+     * @return encoded move, or Move.NONE if the side to move has no legal move.
+     */
+    public int bestMove(ChessBoard chessBoard, SearchLimits limits) {
+        return search(new Position(chessBoard.getPosition()), limits).getBestMove();
+    }
+
+    /**
+     * Searches a position by iterative deepening until a limit is reached.
+     * The position is modified during the search and restored before returning.
+     * @param position
+     * @param limits
+     * @return result of the last completed depth.
+     */
+    public SearchResult search(Position position, SearchLimits limits) {
+        int bookMove = probeBook(position);
+        if (bookMove != Move.NONE) {
+            return new SearchResult(bookMove, 0, 0, 0L, 0L, new int[]{bookMove});
+        }
+        stopped = false;
+        transpositionTable.newSearch();
+        return search(position, limits, 0);
+    }
+
+    /**
+     * Returns a move of the opening book for a position, chosen at random by weight.
+     * @param position
+     * @return encoded move, or Move.NONE if there is no book or the position is not in it.
+     */
+    int probeBook(Position position) {
+        if (openingBook == null) {
+            return Move.NONE;
+        }
+        return openingBook.weightedMove(position, moves[0], ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Sets the opening book whose moves are played without a search, or null to always search.
+     * @param openingBook
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Searches a position as one of the threads of a parallel search, without resetting the stop signal.
+     * @param position position confined to the calling thread.
+     * @param limits
+     * @param depthOffset number of plies added to the depth of each iteration.
+     * @return result of the last completed depth.
+     */
+    SearchResult search(Position position, SearchLimits limits, int depthOffset) {
+        long start = System.nanoTime();
+        this.position = position;
+        this.nodes = 0L;
+        this.maxNodes = limits.getNodes();
+        this.deadline = limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() * 1_000_000L : Long.MAX_VALUE;
+        this.previousPvLength = 0;
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        //keep some of the history of the previous search.
+        for (int[] pieceHistory : history) {
+            for (int square = 0; square < 64; square++) {
+                pieceHistory[square] >>= 2;
+            }
+        }
+
+        int count = MoveGenerator.generateLegalMoves(position, moves[0]);
+        if (count == 0) {
+            int score = position.isInCheck(position.getSideToMove()) ? -MATE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0L, elapsedMillis(start), new int[0]);
+        }
+        //fall back to any legal move if not even the first depth completes.
+        SearchResult result = new SearchResult(moves[0][0], 0, 0, 0L, 0L, new int[]{moves[0][0]});
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth() + depthOffset, MAX_PLY) : MAX_PLY;
+        for (int depth = 1 + depthOffset; depth <= maxDepth; depth++) {
+            followPv = true;
+            int score = alphaBeta(depth, 0, -INFINITE, INFINITE);
+            //an interrupted depth is discarded, unless it is the first one and a move was already searched.
+            if (stopped && (result.getDepth() > 0 || pvLength[0] == 0)) {
+                break;
+            }
+            System.arraycopy(pv[0], 0, previousPv, 0, pvLength[0]);
+            previousPvLength = pvLength[0];
+            int[] principalVariation = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, principalVariation, 0, pvLength[0]);
+            result = new SearchResult(pv[0][0], score, depth, nodes, elapsedMillis(start), principalVariation);
+            if (stopped || Math.abs(score) >= MATE - depth) {
+                break;
+            }
+            //the next depth takes several times longer, so it is not started late.
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - start > (deadline - start) / 2) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops the current search as soon as possible. May be called from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Clears the stop signal before a parallel search, from the thread starting it.
+     */
+    void reset() {
+        stopped = false;
+    }
+
+    /**
+     * Returns the number of nodes searched so far by the current or last search.
+     * @return
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int alphaBeta(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if ((++nodes & CHECK_INTERVAL) == 0 || nodes == maxNodes) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply > 0 && (position.getHalfmoveClock() >= 100 || position.isRepetition())) {
+            return 0;
+        }
+        //a stored result of at least the same depth answers a null window search, the bound permitting.
+        boolean pvNode = beta - alpha > 1;
+        long entry = transpositionTable.probe(position.getKey());
+        if (entry != 0L && !pvNode && TranspositionTable.depth(entry) >= depth) {
+            int score = scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int us = position.getSideToMove();
+        boolean inCheck = position.isInCheck(us);
+        //look one ply further when in check, so that a check does not hide a threat beyond the horizon.
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        if (ply >= MAX_PLY) {
+            return evaluate();
+        }
+
+        int[] plyMoves = moves[ply];
+        int count = MoveGenerator.generateLegalMoves(position, plyMoves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int pvMove = Move.NONE;
+        if (followPv) {
+            if (ply < previousPvLength) {
+                pvMove = previousPv[ply];
+            } else {
+                followPv = false;
+            }
+        }
+        //the move of the table is only matched against the legal moves, so a wrong one is harmless.
+        scoreMoves(ply, count, pvMove != Move.NONE ? pvMove : TranspositionTable.move(entry));
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            int piece = position.pieceAt(Move.from(move));
+            followPv = followPv && move == pvMove;
+            position.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                //the later moves are expected to fail low, which a null window proves cheaply.
+                score = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            position.unmakeMove();
+            followPv = false;
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            updateKillers(ply, move);
+                            updateHistory(piece, Move.to(move), depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        transpositionTable.store(position.getKey(), bound == TranspositionTable.BOUND_UPPER ? Move.NONE : bestMove,
+                scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Searches only the captures and promotions, or every evasion when in check, until the position is quiet.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if ((++nodes & CHECK_INTERVAL) == 0 || nodes == maxNodes) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluate();
+        }
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        int bestScore = -INFINITE;
+        if (!inCheck) {
+            //the side to move can usually do at least as well as the static evaluation by a quiet move.
+            bestScore = evaluate();
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            if (bestScore > alpha) {
+                alpha = bestScore;
+            }
+        }
+
+        int count = MoveGenerator.generateLegalMoves(position, moves[ply]);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, Move.NONE);
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            if (!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) {
+                //the remaining moves are quiet, since captures and promotions are ordered first.
+                break;
+            }
+            position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private int evaluate() {
+        return evaluator.evaluate(position);
+    }
+
+    private void scoreMoves(int ply, int count, int pvMove) {
+        int[] plyMoves = moves[ply];
+        int[] plyScores = scores[ply];
+        for (int i = 0; i < count; i++) {
+            int move = plyMoves[i];
+            if (move == pvMove) {
+                plyScores[i] = PV_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                int victim = Move.isEnPassant(move) || !Move.isCapture(move)
+                        ? Position.PAWN : Position.typeOf(position.pieceAt(Move.to(move)));
+                int attacker = Position.typeOf(position.pieceAt(Move.from(move)));
+                int score = CAPTURE_SCORE + PIECE_VALUES[victim] * 8 - attacker;
+                if (Move.isPromotion(move)) {
+                    score += PIECE_VALUES[Move.promotion(move)];
+                }
+                plyScores[i] = score;
+            } else if (move == killers[ply][0]) {
+                plyScores[i] = FIRST_KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                plyScores[i] = SECOND_KILLER_SCORE;
+            } else {
+                plyScores[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Moves the best scored move of the remaining moves to the specified index and returns it.
+     * Selecting the moves one at a time is cheaper than sorting since most nodes cut off after a few moves.
+     */
+    private int pickMove(int ply, int index, int count) {
+        int[] plyMoves = moves[ply];
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (plyScores[i] > plyScores[best]) {
+                best = i;
+            }
+        }
+        int move = plyMoves[best];
+        int score = plyScores[best];
+        plyMoves[best] = plyMoves[index];
+        plyScores[best] = plyScores[index];
+        plyMoves[index] = move;
+        plyScores[index] = score;
+        return move;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private void updateKillers(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private void updateHistory(int piece, int to, int depth) {
+        history[piece][to] += depth * depth;
+        if (history[piece][to] >= MAX_HISTORY) {
+            for (int[] pieceHistory : history) {
+                for (int square = 0; square < 64; square++) {
+                    pieceHistory[square] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mate scores are stored relative to the position instead of the root, since the position can be reached at
+     * another ply.
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        } else if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        } else if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    private void checkLimits() {
+        if ((maxNodes > 0 && nodes >= maxNodes) || System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+}
@@ -0,0 +1,16 @@
+package chess.engine;
+
+import chess.Position;
+
+/**
+ * Static evaluation of a position, used at the leaves of the search.
+ * An evaluator may keep state between calls, so each search thread uses its own.
+ */
+public interface Evaluator {
+    /**
+     * Returns the score of a position in centipawns from the point of view of the side to move.
+     * @param position
+     * @return
+     */
+    int evaluate(Position position);
+}
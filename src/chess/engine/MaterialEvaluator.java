@@ -0,0 +1,19 @@
+package chess.engine;
+
+import chess.PieceSquareTables;
+import chess.Position;
+
+/**
+ * Evaluation by the material balance only, a baseline to compare other evaluators against.
+ */
+public class MaterialEvaluator implements Evaluator {
+    @Override
+    public int evaluate(Position position) {
+        int score = 0;
+        for (int type = Position.PAWN; type < Position.KING; type++) {
+            score += PieceSquareTables.middlegameValue(type) * (Long.bitCount(position.pieces(Position.WHITE, type))
+                    - Long.bitCount(position.pieces(Position.BLACK, type)));
+        }
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+}
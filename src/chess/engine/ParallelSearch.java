@@ -0,0 +1,152 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.Position;
+import chess.book.OpeningBook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP search over several threads.
+ * Every thread runs its own Engine on its own copy of the position and all of them share one transposition table,
+ * so the threads mostly communicate through the results they store. Half of the helper threads search one ply
+ * deeper at each iteration, so that they fill the table ahead of the main thread.
+ * The main thread runs on the calling thread and its limits end the search, the helpers are then stopped and the
+ * result of the deepest completed search is returned.
+ */
+public class ParallelSearch {
+    private final TranspositionTable transpositionTable;
+    private final Engine[] engines;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a parallel search with a transposition table of the default size.
+     * @param threads number of search threads, including the calling thread.
+     */
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * @param threads number of search threads, including the calling thread.
+     * @param transpositionTable table shared by the threads.
+     */
+    public ParallelSearch(int threads, TranspositionTable transpositionTable) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.transpositionTable = transpositionTable;
+        this.engines = new Engine[threads];
+        for (int i = 0; i < threads; i++) {
+            engines[i] = new Engine(transpositionTable);
+        }
+        this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the best move for the side to move of the chess board. The chess board itself is not modified.
+     * @param chessBoard
+     * @param limits
+     * @return encoded move, or Move.NONE if the side to move has no legal move.
+     */
+    public int bestMove(ChessBoard chessBoard, SearchLimits limits) {
+        return search(chessBoard.getPosition(), limits).getBestMove();
+    }
+
+    /**
+     * Searches a position on every thread until the limits of the main thread are reached.
+     * @param position position to search, which is copied for each thread and not modified.
+     * @param limits
+     * @return result of the deepest completed search, with the nodes of every thread.
+     */
+    public SearchResult search(Position position, SearchLimits limits) {
+        int bookMove = engines[0].probeBook(position);
+        if (bookMove != Move.NONE) {
+            return new SearchResult(bookMove, 0, 0, 0L, 0L, new int[]{bookMove});
+        }
+        long start = System.nanoTime();
+        transpositionTable.newSearch();
+        //the stop signals are cleared before the helpers start, so that a helper started late still sees stop.
+        for (Engine engine : engines) {
+            engine.reset();
+        }
+        List<Future<SearchResult>> helpers = new ArrayList<>();
+        for (int i = 1; i < engines.length; i++) {
+            Engine engine = engines[i];
+            Position copy = new Position(position);
+            int depthOffset = i % 2;
+            helpers.add(executor.submit(() -> engine.search(copy, limits, depthOffset)));
+        }
+        SearchResult best = engines[0].search(new Position(position), limits, 0);
+        stop();
+
+        for (Future<SearchResult> helper : helpers) {
+            SearchResult result = getResult(helper);
+            if (result.getDepth() > best.getDepth() && result.getBestMove() != Move.NONE) {
+                best = result;
+            }
+        }
+        long nodes = 0L;
+        for (Engine engine : engines) {
+            nodes += engine.getNodes();
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes,
+                (System.nanoTime() - start) / 1_000_000L, best.getPrincipalVariation());
+    }
+
+    /**
+     * Sets the opening book whose moves are played without a search, or null to always search.
+     * @param openingBook
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        engines[0].setOpeningBook(openingBook);
+    }
+
+    /**
+     * Stops the current search as soon as possible. May be called from another thread.
+     */
+    public void stop() {
+        for (Engine engine : engines) {
+            engine.stop();
+        }
+    }
+
+    /**
+     * Stops the helper threads. The parallel search cannot be used afterwards.
+     */
+    public void shutdown() {
+        stop();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public int getThreads() {
+        return engines.length;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    private static SearchResult getResult(Future<SearchResult> helper) {
+        try {
+            return helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search threads", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search thread failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size cache of the pawn structure terms, keyed by the pawn key of the position.
+ * The pawns rarely move between the nodes of a search, so most evaluations find their pawn terms here.
+ * Entries are kept in two primitive arrays, the key and the middlegame and endgame scores packed in a long,
+ * and a new entry always replaces the entry of its slot. A table is used by a single thread.
+ */
+public class PawnHashTable {
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    //returned by probe when the pawn structure is not in the table, no packed scores are equal to it.
+    public static final long MISS = Long.MIN_VALUE;
+
+    //an empty slot has the key and the scores of a position without pawns, which are both 0.
+    private final long[] keys;
+    private final long[] scores;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    public PawnHashTable() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    /**
+     * @param entries number of entries, rounded down to a power of two.
+     */
+    public PawnHashTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Invalid pawn hash table size: " + entries);
+        }
+        int size = Integer.highestOneBit(entries);
+        this.keys = new long[size];
+        this.scores = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the packed scores stored for a pawn structure, or MISS.
+     * @param pawnKey pawn key of the position.
+     * @return
+     */
+    public long probe(long pawnKey) {
+        int index = (int) pawnKey & mask;
+        if (keys[index] == pawnKey) {
+            hits++;
+            return scores[index];
+        }
+        misses++;
+        return MISS;
+    }
+
+    /**
+     * Stores the pawn structure terms of a position.
+     * @param pawnKey pawn key of the position.
+     * @param middlegame middlegame score from the point of view of white.
+     * @param endgame endgame score from the point of view of white.
+     */
+    public void store(long pawnKey, int middlegame, int endgame) {
+        int index = (int) pawnKey & mask;
+        keys[index] = pawnKey;
+        scores[index] = ((long) middlegame << 32) | (endgame & 0xFFFFFFFFL);
+    }
+
+    public static int middlegame(long scores) {
+        return (int) (scores >> 32);
+    }
+
+    public static int endgame(long scores) {
+        return (int) scores;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of the probes that found their pawn structure.
+     * @return
+     */
+    public double getHitRate() {
+        long probes = hits + misses;
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+
+    /**
+     * Removes every entry and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(scores, 0L);
+        hits = 0L;
+        misses = 0L;
+    }
+}
@@ -0,0 +1,64 @@
+package chess.engine;
+
+/**
+ * Limits of a search. A limit of 0 means that the search is not limited in that way.
+ * The search stops at the first limit reached and returns the best move of the last completed depth.
+ */
+public class SearchLimits {
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    /**
+     * @param depth maximum depth in plies, or 0.
+     * @param nodes maximum number of nodes, or 0.
+     * @param timeMillis maximum time in milliseconds, or 0.
+     */
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        if (depth < 0 || nodes < 0 || timeMillis < 0) {
+            throw new IllegalArgumentException("Search limits must not be negative");
+        }
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Returns limits that stop the search after the specified depth.
+     * @param depth depth in plies.
+     * @return
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0L, 0L);
+    }
+
+    /**
+     * Returns limits that stop the search after the specified number of nodes.
+     * @param nodes
+     * @return
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0L);
+    }
+
+    /**
+     * Returns limits that stop the search after the specified time.
+     * @param timeMillis time in milliseconds.
+     * @return
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(0, 0L, timeMillis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
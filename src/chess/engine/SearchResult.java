@@ -0,0 +1,81 @@
+package chess.engine;
+
+import chess.Move;
+
+/**
+ * Result of a search: the best move and the score of the last completed depth.
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+    private final int[] principalVariation;
+
+    /**
+     * @param bestMove encoded best move, or Move.NONE if the side to move has no legal move.
+     * @param score score in centipawns from the point of view of the side to move.
+     * @param depth last completed depth.
+     * @param nodes number of nodes searched.
+     * @param timeMillis time spent in milliseconds.
+     * @param principalVariation expected moves from the root, starting with the best move.
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = principalVariation;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * Returns if the score is a forced mate for either side.
+     * @return
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Engine.MATE - Engine.MAX_PLY;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("depth ").append(depth);
+        if (isMate()) {
+            int plies = Engine.MATE - Math.abs(score);
+            text.append(" mate ").append(score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        } else {
+            text.append(" score ").append(score);
+        }
+        text.append(" nodes ").append(nodes).append(" time ").append(timeMillis).append(" pv");
+        for (int move : principalVariation) {
+            text.append(' ').append(Move.toString(move));
+        }
+        return text.toString();
+    }
+}
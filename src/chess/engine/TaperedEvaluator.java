@@ -0,0 +1,188 @@
+package chess.engine;
+
+import chess.Attacks;
+import chess.PieceSquareTables;
+import chess.Position;
+
+/**
+ * Tapered evaluation: every term has a middlegame and an endgame value, which are blended by the game phase.
+ * Material and piece square values are kept up to date by Position on every move. The pawn structure, king
+ * safety and mobility terms are computed here from the bitboards, and the pawn structure terms are cached in
+ * a pawn hash table.
+ */
+public class TaperedEvaluator implements Evaluator {
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int BACKWARD_MIDDLEGAME = -8;
+    private static final int BACKWARD_ENDGAME = -10;
+    //passed pawn bonus by rank from the point of view of the pawn.
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 90, 130, 0};
+
+    //bonus per reachable square above the usual number of squares, indexed by piece type.
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 4, 5, 4, 2, 0};
+    private static final int[] MOBILITY_BASE = {0, 4, 6, 7, 13, 0};
+
+    //bonus of the pawns one and two ranks in front of the king.
+    private static final int SHIELD_NEAR = 12;
+    private static final int SHIELD_FAR = 6;
+    //penalty per attack on the squares around the king, indexed by the type of the attacker.
+    private static final int[] KING_ATTACK = {0, 8, 8, 12, 20, 0};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    //ranks strictly in front of a rank, from the point of view of each color.
+    private static final long[][] FORWARD_RANKS = new long[2][8];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = Position.FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int rank = 0; rank < 8; rank++) {
+            FORWARD_RANKS[Position.WHITE][rank] = rank == 7 ? 0L : -1L << (8 * (rank + 1));
+            FORWARD_RANKS[Position.BLACK][rank] = rank == 0 ? 0L : -1L >>> (8 * (8 - rank));
+        }
+    }
+
+    private final PawnHashTable pawnHashTable;
+    //terms of the current evaluation from the point of view of white.
+    private int middlegame;
+    private int endgame;
+
+    public TaperedEvaluator() {
+        this(new PawnHashTable());
+    }
+
+    /**
+     * @param pawnHashTable cache of the pawn structure terms, used only by this evaluator.
+     */
+    public TaperedEvaluator(PawnHashTable pawnHashTable) {
+        this.pawnHashTable = pawnHashTable;
+    }
+
+    @Override
+    public int evaluate(Position position) {
+        long pawnScores = pawnHashTable.probe(position.getPawnKey());
+        if (pawnScores == PawnHashTable.MISS) {
+            middlegame = 0;
+            endgame = 0;
+            evaluatePawns(position);
+            pawnHashTable.store(position.getPawnKey(), middlegame, endgame);
+        } else {
+            middlegame = PawnHashTable.middlegame(pawnScores);
+            endgame = PawnHashTable.endgame(pawnScores);
+        }
+        middlegame += position.getMiddlegameScore();
+        endgame += position.getEndgameScore();
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            evaluatePieces(position, color);
+        }
+        int phase = Math.min(position.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Adds the doubled, isolated, backward and passed pawn terms of both colors.
+     */
+    private void evaluatePawns(Position position) {
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int sign = color == Position.WHITE ? 1 : -1;
+            long own = position.pieces(color, Position.PAWN);
+            long enemy = position.pieces(color ^ 1, Position.PAWN);
+            long enemyAttacks = pawnAttacks(color ^ 1, enemy);
+            for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                int file = Position.fileOf(square);
+                int rank = Position.rankOf(square);
+                long front = FORWARD_RANKS[color][rank];
+                if ((own & FILES[file] & front) != 0) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME;
+                    endgame += sign * DOUBLED_ENDGAME;
+                } else if ((enemy & (FILES[file] | ADJACENT_FILES[file]) & front) == 0) {
+                    int relativeRank = color == Position.WHITE ? rank : 7 - rank;
+                    middlegame += sign * PASSED_MIDDLEGAME[relativeRank];
+                    endgame += sign * PASSED_ENDGAME[relativeRank];
+                }
+                if ((own & ADJACENT_FILES[file]) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                } else if ((own & ADJACENT_FILES[file] & ~front) == 0) {
+                    //no pawn beside or behind can defend it, and an enemy pawn controls the square in front.
+                    int stop = color == Position.WHITE ? square + 8 : square - 8;
+                    if (stop >= 0 && stop < 64 && (enemyAttacks & Position.bit(stop)) != 0) {
+                        middlegame += sign * BACKWARD_MIDDLEGAME;
+                        endgame += sign * BACKWARD_ENDGAME;
+                    }
+                }
+            }
+        }
+    }
+
+    public PawnHashTable getPawnHashTable() {
+        return pawnHashTable;
+    }
+
+    /**
+     * Adds the mobility of the pieces of a color and the safety of its king.
+     */
+    private void evaluatePieces(Position position, int color) {
+        int sign = color == Position.WHITE ? 1 : -1;
+        long occupied = position.occupied();
+        //squares attacked by enemy pawns are not counted as reachable.
+        long area = ~position.pieces(color) & ~pawnAttacks(color ^ 1, position.pieces(color ^ 1, Position.PAWN));
+        int enemyKing = position.kingSquare(color ^ 1);
+        long kingZone = enemyKing == Position.NO_SQUARE ? 0L : Attacks.kingAttacks(enemyKing) | Position.bit(enemyKing);
+        int kingAttackers = 0;
+        int kingAttack = 0;
+        for (int type = Position.KNIGHT; type <= Position.QUEEN; type++) {
+            for (long pieces = position.pieces(color, type); pieces != 0; pieces &= pieces - 1) {
+                long attacks = Attacks.attacks(type, color, Long.numberOfTrailingZeros(pieces), occupied);
+                int mobility = Long.bitCount(attacks & area) - MOBILITY_BASE[type];
+                middlegame += sign * mobility * MOBILITY_MIDDLEGAME[type];
+                endgame += sign * mobility * MOBILITY_ENDGAME[type];
+                long zoneAttacks = attacks & kingZone;
+                if (zoneAttacks != 0) {
+                    kingAttackers++;
+                    kingAttack += KING_ATTACK[type] * Long.bitCount(zoneAttacks);
+                }
+            }
+        }
+        //a single attacker is rarely dangerous.
+        if (kingAttackers < 2) {
+            kingAttack /= 2;
+        }
+        middlegame += sign * kingAttack;
+
+        int king = position.kingSquare(color);
+        if (king != Position.NO_SQUARE) {
+            long shieldFiles = FILES[Position.fileOf(king)] | ADJACENT_FILES[Position.fileOf(king)];
+            long pawns = position.pieces(color, Position.PAWN) & shieldFiles;
+            int rank = Position.rankOf(king);
+            int forward = color == Position.WHITE ? 1 : -1;
+            middlegame += sign * (SHIELD_NEAR * Long.bitCount(pawns & rankMask(rank + forward))
+                    + SHIELD_FAR * Long.bitCount(pawns & rankMask(rank + 2 * forward)));
+        }
+    }
+
+    private static long rankMask(int rank) {
+        return rank < 0 || rank > 7 ? 0L : 0xFFL << (8 * rank);
+    }
+
+    /**
+     * Returns the squares attacked by a set of pawns of the specified color.
+     */
+    private static long pawnAttacks(int color, long pawns) {
+        if (color == Position.WHITE) {
+            return ((pawns & ~Position.FILE_A) << 7) | ((pawns & ~Position.FILE_H) << 9);
+        }
+        return ((pawns & ~Position.FILE_A) >>> 9) | ((pawns & ~Position.FILE_H) >>> 7);
+    }
+}
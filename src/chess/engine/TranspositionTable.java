@@ -0,0 +1,169 @@
+package chess.engine;
+
+import chess.Move;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table of search results keyed by the Zobrist key of the position.
+ * Each entry is two longs of a single long[]: the key xor the data, then the data. The data packs the best move,
+ * the bound type, the depth, the age and the score, so the table holds no object per entry.
+ * The table is shared by search threads without locks: writes of longs are not atomic together, so a probe
+ * verifies that the stored key xor the stored data gives back its key, which fails for a torn entry.
+ * Entries are grouped in buckets of four, two cache lines, and a store replaces the entry of the same position,
+ * otherwise the shallowest entry of the oldest searches.
+ */
+public class TranspositionTable {
+    public static final int BOUND_NONE = 0;
+    //the score is at most the stored score.
+    public static final int BOUND_UPPER = 1;
+    //the score is at least the stored score.
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = BOUND_UPPER | BOUND_LOWER;
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_LONGS = ENTRY_LONGS * BUCKET_ENTRIES;
+
+    //layout of the data long.
+    private static final long MOVE_MASK = (1L << 19) - 1;
+    private static final int BOUND_SHIFT = 19;
+    private static final int DEPTH_SHIFT = 21;
+    private static final int AGE_SHIFT = 29;
+    private static final int SCORE_SHIFT = 48;
+    private static final int BYTE_MASK = 0xFF;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * Creates a table of at most the specified size, rounded down to a power of two number of buckets.
+     * @param megabytes size in megabytes.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Invalid transposition table size: " + megabytes);
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (BUCKET_LONGS * Long.BYTES));
+        //a Java array holds less than 2^31 longs.
+        buckets = Math.min(buckets, 1L << 27);
+        this.table = new long[(int) buckets * BUCKET_LONGS];
+        this.bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Returns the data stored for a position, or 0 if there is none. The data is read with the static accessors.
+     * @param key Zobrist key of the position.
+     * @return
+     */
+    public long probe(long key) {
+        int bucket = ((int) key & bucketMask) * BUCKET_LONGS;
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += ENTRY_LONGS) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != 0L) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores the result of a search of a position.
+     * @param key Zobrist key of the position.
+     * @param move best move, or Move.NONE to keep the move already stored for the position.
+     * @param score score, with mate scores relative to the position.
+     * @param depth depth of the search.
+     * @param bound bound type of the score.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int bucket = ((int) key & bucketMask) * BUCKET_LONGS;
+        int currentAge = age;
+        int replace = bucket;
+        int worst = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += ENTRY_LONGS) {
+            long data = table[i + 1];
+            if (data == 0L || (table[i] ^ data) == key) {
+                if (data != 0L && move == Move.NONE) {
+                    move = move(data);
+                }
+                replace = i;
+                break;
+            }
+            //each search of age difference counts as much as eight plies of depth.
+            int value = depth(data) - 8 * ((currentAge - age(data)) & BYTE_MASK);
+            if (value < worst) {
+                worst = value;
+                replace = i;
+            }
+        }
+        long data = (move & MOVE_MASK)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (Math.max(depth, 0) & BYTE_MASK) << DEPTH_SHIFT)
+                | ((long) currentAge << AGE_SHIFT)
+                | ((long) score << SCORE_SHIFT);
+        table[replace] = key ^ data;
+        table[replace + 1] = data;
+    }
+
+    /**
+     * Starts a new search, so that the entries of the previous searches are replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & BYTE_MASK;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     * @return
+     */
+    public int getCapacity() {
+        return table.length / ENTRY_LONGS;
+    }
+
+    /**
+     * Returns the permille of entries written by the current search, estimated from the first thousand entries.
+     * @return
+     */
+    public int getHashfull() {
+        int used = 0;
+        int sample = Math.min(1000, getCapacity());
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * ENTRY_LONGS + 1];
+            if (data != 0L && age(data) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & BYTE_MASK;
+    }
+
+    public static int score(long data) {
+        return (int) (data >> SCORE_SHIFT);
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> AGE_SHIFT) & BYTE_MASK;
+    }
+}
@@ -0,0 +1,257 @@
+package chess.perft;
+
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test(perft) split over the cores with a ForkJoinPool.
+ * The tree is split at the root moves, and at the second ply when there are too few root moves to keep every
+ * thread busy. Each subtree is counted by a sequential Perft on its own copy of the position and the counts
+ * are summed when the tasks are joined. The node count and CPU time of each worker thread are kept to report
+ * the node rate per thread and the utilisation of the threads, their CPU time over their wall time. The speedup
+ * is measured separately against a sequential Perft of the same positions: T1/Tn, and the scaling efficiency
+ * T1/(n*Tn) for n threads. A high utilisation alone does not show a speedup, as the threads could be busy with
+ * redundant work.
+ */
+public class ParallelPerft {
+    //root moves wanted per thread before the second ply is split too.
+    private static final int MOVES_PER_THREAD = 4;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ForkJoinPool pool;
+    //node count and busy nanoseconds of each worker thread, each array is only written by its thread.
+    private final Map<Thread, long[]> threadStatistics = new ConcurrentHashMap<>();
+    //a sequential perft per worker thread, so that its move buffers are allocated once.
+    private final ThreadLocal<Perft> perfts = ThreadLocal.withInitial(Perft::new);
+
+    /**
+     * @param threads number of worker threads.
+     */
+    public ParallelPerft(int threads) {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Returns the number of leaf nodes of the legal move tree of a position.
+     * @param position position, which is not modified.
+     * @param depth
+     * @return
+     */
+    public long perft(Position position, int depth) {
+        if (depth <= 0) {
+            return 1L;
+        }
+        long total = 0L;
+        for (long nodes : divide(position, depth).values()) {
+            total += nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of leaf nodes below each legal move of a position.
+     * @param position position, which is not modified.
+     * @param depth depth including the root moves.
+     * @return map of the root moves in coordinate notation to their node counts.
+     */
+    public Map<String, Long> divide(Position position, int depth) {
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, rootMoves);
+        int splitPlies = count < pool.getParallelism() * MOVES_PER_THREAD && depth > 2 ? 1 : 0;
+        List<SubtreeTask> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Position child = new Position(position);
+            child.makeMove(rootMoves[i]);
+            tasks.add(new SubtreeTask(child, depth - 1, splitPlies));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            counts.put(Move.toString(rootMoves[i]), tasks.get(i).join());
+        }
+        return counts;
+    }
+
+    /**
+     * Runs the standard suite up to the specified depth, timing each count with a sequential Perft too, then
+     * reports the node rate of each thread, the utilisation of the threads and the speedup.
+     * @param maxDepth
+     * @return number of node counts that did not match the expected count.
+     */
+    public int runSuite(int maxDepth) {
+        threadStatistics.clear();
+        int failures = 0;
+        long totalNodes = 0L;
+        long totalNanos = 0L;
+        long totalSequentialNanos = 0L;
+        Perft sequential = new Perft();
+        for (Perft.Case testCase : Perft.SUITE) {
+            Position position = Fen.parse(testCase.fen);
+            for (int depth = 1; depth <= Math.min(maxDepth, testCase.counts.length); depth++) {
+                long start = System.nanoTime();
+                long nodes = perft(position, depth);
+                long nanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                sequential.perft(position, depth);
+                long sequentialNanos = System.nanoTime() - start;
+                long expected = testCase.counts[depth - 1];
+                boolean passed = nodes == expected;
+                if (!passed) {
+                    failures++;
+                }
+                totalNodes += nodes;
+                totalNanos += nanos;
+                totalSequentialNanos += sequentialNanos;
+                System.out.printf("%-18s depth %d  nodes %12d  expected %12d  %s  %8.1f ms  %,12d nps  speedup %.2f%n",
+                        testCase.name, depth, nodes, expected, passed ? "OK  " : "FAIL",
+                        nanos / 1e6, Perft.nodesPerSecond(nodes, nanos), speedup(sequentialNanos, nanos));
+            }
+        }
+        System.out.printf("Total nodes %d in %.1f ms, %,d nps, %d failures%n",
+                totalNodes, totalNanos / 1e6, Perft.nodesPerSecond(totalNodes, totalNanos), failures);
+        printThreadStatistics(totalNanos, totalSequentialNanos);
+        return failures;
+    }
+
+    /**
+     * Prints the nodes and node rate of each worker thread since the last suite, the utilisation of the threads,
+     * and the speedup over a sequential Perft of the same counts.
+     * @param wallNanos wall time of the counts.
+     * @param sequentialNanos wall time of the same counts by a sequential Perft, T1, or 0 if it was not measured.
+     */
+    public void printThreadStatistics(long wallNanos, long sequentialNanos) {
+        long busyNanos = 0L;
+        for (Map.Entry<Thread, long[]> entry : threadStatistics.entrySet()) {
+            long[] statistics = entry.getValue();
+            busyNanos += statistics[1];
+            System.out.printf("%-32s nodes %12d  busy %8.1f ms  %,12d nps%n", entry.getKey().getName(),
+                    statistics[0], statistics[1] / 1e6, Perft.nodesPerSecond(statistics[0], statistics[1]));
+        }
+        int threads = pool.getParallelism();
+        double utilisation = wallNanos == 0 ? 0.0 : (double) busyNanos / ((double) wallNanos * threads);
+        System.out.printf("%d threads, utilisation %.1f%%", threads, 100.0 * utilisation);
+        if (sequentialNanos > 0) {
+            double speedup = speedup(sequentialNanos, wallNanos);
+            System.out.printf(", speedup T1/Tn %.2f, scaling efficiency T1/(n*Tn) %.1f%%",
+                    speedup, 100.0 * speedup / threads);
+        }
+        System.out.println();
+    }
+
+    private static double speedup(long sequentialNanos, long parallelNanos) {
+        return parallelNanos == 0 ? 0.0 : (double) sequentialNanos / parallelNanos;
+    }
+
+    /**
+     * Returns the CPU time of the current thread, or the wall time if it is not supported. The CPU time does not
+     * count the time a thread waits for a core, which would hide a lack of cores.
+     */
+    private static long busyNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Usage: ParallelPerft threads [maxDepth] to run the suite, or ParallelPerft threads divide depth fen.
+     * @param args
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        ParallelPerft perft = new ParallelPerft(threads);
+        if (args.length >= 4 && "divide".equals(args[1])) {
+            int depth = Integer.parseInt(args[2]);
+            StringBuilder fen = new StringBuilder();
+            for (int i = 3; i < args.length; i++) {
+                fen.append(args[i]).append(' ');
+            }
+            Position position = Fen.parse(fen.toString());
+            long start = System.nanoTime();
+            long total = 0L;
+            for (Map.Entry<String, Long> entry : perft.divide(position, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.println("Nodes: " + total);
+            start = System.nanoTime();
+            new Perft().perft(position, depth);
+            perft.printThreadStatistics(nanos, System.nanoTime() - start);
+        } else {
+            int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+            if (perft.runSuite(maxDepth) > 0) {
+                System.exit(1);
+            }
+        }
+        perft.shutdown();
+    }
+
+    /**
+     * Counts the subtree of a position, forking one task per move while plies are left to split.
+     */
+    @SuppressWarnings("serial")
+    private class SubtreeTask extends RecursiveTask<Long> {
+        private final Position position;
+        private final int depth;
+        private final int splitPlies;
+
+        SubtreeTask(Position position, int depth, int splitPlies) {
+            this.position = position;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitPlies > 0 && depth > 1) {
+                int[] moves = new int[MoveGenerator.MAX_MOVES];
+                int count = MoveGenerator.generateLegalMoves(position, moves);
+                List<SubtreeTask> tasks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    Position child = new Position(position);
+                    child.makeMove(moves[i]);
+                    tasks.add(new SubtreeTask(child, depth - 1, splitPlies - 1));
+                }
+                long nodes = 0L;
+                for (SubtreeTask task : invokeAll(tasks)) {
+                    nodes += task.join();
+                }
+                return nodes;
+            }
+            long start = busyNanos();
+            long nodes = perfts.get().perft(position, depth);
+            long[] statistics = threadStatistics.computeIfAbsent(Thread.currentThread(), thread -> new long[2]);
+            statistics[0] += nodes;
+            statistics[1] += busyNanos() - start;
+            return nodes;
+        }
+    }
+}
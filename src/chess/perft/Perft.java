@@ -0,0 +1,298 @@
+package chess.perft;
+
+import chess.ChessBoard;
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.piece.ChessPiece;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance test(perft) of the move generation.
+ * Counts the leaf nodes of the legal move tree of a position, which are known for a set of standard positions.
+ * The moves are generated and played by the same MoveGenerator and Position.makeMove that ChessBoard uses.
+ * The checked mode walks the tree through ChessBoard instead, and asserts at each node that ChessBoard.move and
+ * promotePawn, which validate with the move methods of the chess pieces, accept exactly the generated moves and
+ * that unmakeMove restores the position.
+ */
+public class Perft {
+    public static final int MAX_DEPTH = 32;
+
+    //standard positions and their node counts from depth 1.
+    static final Case[] SUITE = {
+            new Case("Initial position", Fen.STARTING_POSITION,
+                    20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+            new Case("Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48L, 2039L, 97862L, 4085603L, 193690690L),
+            new Case("Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+            new Case("Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6L, 264L, 9467L, 422333L, 15833292L),
+            new Case("Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44L, 1486L, 62379L, 2103487L, 89941194L),
+            new Case("Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46L, 2079L, 89890L, 3894594L, 164075551L),
+    };
+
+    //one move buffer per ply, so that counting does not allocate move lists.
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+
+    /**
+     * Returns the number of leaf nodes of the legal move tree of the chess board.
+     * @param chessBoard
+     * @param depth
+     * @return
+     */
+    public long perft(ChessBoard chessBoard, int depth) {
+        return perft(new Position(chessBoard.getPosition()), depth);
+    }
+
+    /**
+     * Returns the number of leaf nodes of the legal move tree of a position.
+     * @param position
+     * @param depth
+     * @return
+     */
+    public long perft(Position position, int depth) {
+        return depth <= 0 ? 1L : perft(position, depth, 0);
+    }
+
+    private long perft(Position position, int depth, int ply) {
+        int[] buffer = moves[ply];
+        int count = MoveGenerator.generateLegalMoves(position, buffer);
+        //the moves of the last ply are counted without being played.
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0L;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(buffer[i]);
+            nodes += perft(position, depth - 1, ply + 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of leaf nodes of the legal move tree of the chess board, walked through ChessBoard.
+     * At each node every move of every chess piece of the side to move is tried with ChessBoard.move, or with
+     * promotePawn for each promotion, and must be accepted exactly when it is a generated legal move.
+     * @param chessBoard chess board, which is left in its position.
+     * @param depth
+     * @return
+     * @throws IllegalStateException if ChessBoard disagrees with the move generation.
+     */
+    public long checkedPerft(ChessBoard chessBoard, int depth) {
+        return depth <= 0 ? 1L : checkedPerft(chessBoard, depth, 0);
+    }
+
+    private long checkedPerft(ChessBoard chessBoard, int depth, int ply) {
+        int[] buffer = moves[ply];
+        int count = chessBoard.generateLegalMoves(buffer);
+        checkMoves(chessBoard, buffer, count);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0L;
+        String fen = chessBoard.toFen();
+        for (int i = 0; i < count; i++) {
+            chessBoard.makeMove(buffer[i]);
+            nodes += checkedPerft(chessBoard, depth - 1, ply + 1);
+            chessBoard.unmakeMove();
+            checkRestored(chessBoard, fen, buffer[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Tries every move of the chess pieces of the side to move against the generated legal moves.
+     */
+    private static void checkMoves(ChessBoard chessBoard, int[] legalMoves, int count) {
+        Position position = chessBoard.getPosition();
+        int color = position.getSideToMove();
+        String fen = chessBoard.toFen();
+        long key = chessBoard.getKey();
+        for (int from = 0; from < 64; from++) {
+            ChessPiece piece = chessBoard.getPiece(from);
+            if (piece == null || piece.getColor() != color) {
+                continue;
+            }
+            for (int to = 0; to < 64; to++) {
+                int legal = find(legalMoves, count, from, to, 0);
+                if (legal != Move.NONE && Move.isPromotion(legal)) {
+                    for (int promotion = Position.KNIGHT; promotion <= Position.QUEEN; promotion++) {
+                        checkMove(chessBoard, fen, key, find(legalMoves, count, from, to, promotion),
+                                chessBoard.promotePawn(from, to, color, promotion), from, to);
+                    }
+                } else {
+                    checkMove(chessBoard, fen, key, legal, chessBoard.move(from, to, color), from, to);
+                }
+            }
+        }
+    }
+
+    private static void checkMove(ChessBoard chessBoard, String fen, long key, int legal, boolean isValid,
+                                  int from, int to) {
+        if (isValid != (legal != Move.NONE)) {
+            throw new IllegalStateException((isValid ? "ChessBoard accepted illegal move "
+                    : "ChessBoard rejected legal move ") + Position.squareName(from) + Position.squareName(to)
+                    + " in " + fen);
+        }
+        if (!isValid) {
+            if (chessBoard.getKey() != key) {
+                throw new IllegalStateException("Rejected move " + Position.squareName(from)
+                        + Position.squareName(to) + " changed " + fen);
+            }
+            return;
+        }
+        int played = chessBoard.getPosition().getLastMove();
+        if (played != legal) {
+            throw new IllegalStateException("ChessBoard played " + Move.toString(played) + " instead of "
+                    + Move.toString(legal) + " in " + fen);
+        }
+        chessBoard.unmakeMove();
+        checkRestored(chessBoard, fen, legal);
+    }
+
+    private static void checkRestored(ChessBoard chessBoard, String fen, int move) {
+        if (!fen.equals(chessBoard.toFen())) {
+            throw new IllegalStateException("Taking back " + Move.toString(move) + " in " + fen + " left "
+                    + chessBoard.toFen());
+        }
+    }
+
+    /**
+     * Returns the generated move between two squares, with the specified promotion if it is one, or Move.NONE.
+     */
+    private static int find(int[] legalMoves, int count, int from, int to, int promotion) {
+        for (int i = 0; i < count; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (promotion == 0 || Move.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Returns the number of leaf nodes below each legal move of a position.
+     * @param position
+     * @param depth depth including the root moves.
+     * @return map of the root moves in coordinate notation to their node counts.
+     */
+    public Map<String, Long> divide(Position position, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, rootMoves);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(rootMoves[i]);
+            counts.put(Move.toString(rootMoves[i]), perft(position, depth - 1));
+            position.unmakeMove();
+        }
+        return counts;
+    }
+
+    /**
+     * Runs the standard suite up to the specified depth and reports node counts and nodes per second.
+     * @param maxDepth
+     * @return number of node counts that did not match the expected count.
+     */
+    public int runSuite(int maxDepth) {
+        return runSuite(maxDepth, false);
+    }
+
+    /**
+     * Runs the standard suite up to the specified depth and reports node counts and nodes per second.
+     * @param maxDepth
+     * @param checked whether to walk the trees through ChessBoard with checkedPerft.
+     * @return number of node counts that did not match the expected count, or that ChessBoard disagreed on.
+     */
+    public int runSuite(int maxDepth, boolean checked) {
+        int failures = 0;
+        long totalNodes = 0L;
+        long totalNanos = 0L;
+        for (Case testCase : SUITE) {
+            Position position = Fen.parse(testCase.fen);
+            for (int depth = 1; depth <= Math.min(maxDepth, testCase.counts.length); depth++) {
+                long start = System.nanoTime();
+                long nodes;
+                if (checked) {
+                    try {
+                        nodes = checkedPerft(new ChessBoard(testCase.fen), depth);
+                    } catch (IllegalStateException e) {
+                        System.out.println(testCase.name + " depth " + depth + ": " + e.getMessage());
+                        nodes = -1L;
+                    }
+                } else {
+                    nodes = perft(position, depth);
+                }
+                long nanos = System.nanoTime() - start;
+                long expected = testCase.counts[depth - 1];
+                boolean passed = nodes == expected;
+                if (!passed) {
+                    failures++;
+                }
+                totalNodes += nodes;
+                totalNanos += nanos;
+                System.out.printf("%-18s depth %d  nodes %12d  expected %12d  %s  %8.1f ms  %,12d nps%n",
+                        testCase.name, depth, nodes, expected, passed ? "OK  " : "FAIL",
+                        nanos / 1e6, nodesPerSecond(nodes, nanos));
+            }
+        }
+        System.out.printf("Total nodes %d in %.1f ms, %,d nps, %d failures%n",
+                totalNodes, totalNanos / 1e6, nodesPerSecond(totalNodes, totalNanos), failures);
+        return failures;
+    }
+
+    static long nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0L : nodes * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * Usage: Perft [checked] [maxDepth] to run the suite, or Perft divide depth fen.
+     * @param args
+     */
+    public static void main(String[] args) {
+        Perft perft = new Perft();
+        if (args.length >= 3 && "divide".equals(args[0])) {
+            int depth = Integer.parseInt(args[1]);
+            StringBuilder fen = new StringBuilder();
+            for (int i = 2; i < args.length; i++) {
+                fen.append(args[i]).append(' ');
+            }
+            long total = 0L;
+            for (Map.Entry<String, Long> entry : perft.divide(Fen.parse(fen.toString()), depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println("Nodes: " + total);
+        } else {
+            boolean checked = args.length > 0 && "checked".equals(args[0]);
+            int first = checked ? 1 : 0;
+            //the checked mode tries every move of every piece at each node, so it goes less deep by default.
+            int maxDepth = args.length > first ? Integer.parseInt(args[first]) : checked ? 3 : 4;
+            if (perft.runSuite(maxDepth, checked) > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * A suite position and its known node counts.
+     */
+    static class Case {
+        final String name;
+        final String fen;
+        final long[] counts;
+
+        Case(String name, String fen, long... counts) {
+            this.name = name;
+            this.fen = fen;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel reading of a PGN file in three stages.
+ * A chunker thread reads the file in chunks of about a megabyte which end at the start of a game or after the
+ * termination marker of a game, so that no game is split, with or without tags. A pool of worker threads replays the
+ * games of each chunk with a PgnReader on a chess board confined to the thread and gathers their statistics. The
+ * calling thread merges the statistics of the chunks.
+ * The stages are connected by bounded queues: a full queue blocks the stage feeding it, so a slow stage slows
+ * the stages before it instead of letting the chunks pile up in memory.
+ */
+public class PgnPipeline {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    //a chunk is grown to hold a single game up to this size, a larger game is reported as an error.
+    public static final int MAX_GAME_SIZE = 64 << 20;
+    private static final byte[][] TERMINATIONS = {
+            "1-0".getBytes(StandardCharsets.US_ASCII), "0-1".getBytes(StandardCharsets.US_ASCII),
+            "1/2-1/2".getBytes(StandardCharsets.US_ASCII), "*".getBytes(StandardCharsets.US_ASCII)};
+    //chunks waiting in each queue per worker thread.
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    //sent by the chunker after the last chunk, and passed on by each worker to the next one.
+    private static final Chunk END_OF_INPUT = new Chunk(new byte[0], 0, 0L);
+    //sent by each worker once it has stopped.
+    private static final PgnStatistics WORKER_DONE = new PgnStatistics();
+
+    private final int threads;
+    private final int chunkSize;
+    private boolean validateMoves;
+
+    //throughput of the last run.
+    private long bytes;
+    private long chunks;
+    private long stalls;
+    private long nanos;
+
+    /**
+     * @param threads number of worker threads.
+     */
+    public PgnPipeline(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param threads number of worker threads.
+     * @param chunkSize size in bytes of the chunks, a chunk is larger when a single game is larger, up to
+     *                  MAX_GAME_SIZE or chunkSize if it is larger.
+     */
+    public PgnPipeline(int threads, int chunkSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets whether the workers replay the moves through ChessBoard.move, see PgnReader.setValidateMoves.
+     * @param validateMoves
+     */
+    public void setValidateMoves(boolean validateMoves) {
+        this.validateMoves = validateMoves;
+    }
+
+    /**
+     * Reads every game of a PGN file.
+     * @param path
+     * @return statistics of the games.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public PgnStatistics run(Path path) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        bytes = 0L;
+        chunks = 0L;
+        stalls = 0L;
+        BlockingQueue<Chunk> chunkQueue = new ArrayBlockingQueue<>(threads * CHUNKS_PER_THREAD);
+        BlockingQueue<PgnStatistics> resultQueue = new ArrayBlockingQueue<>(threads * CHUNKS_PER_THREAD);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1, runnable -> {
+            Thread thread = new Thread(runnable, "pgn-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<?> chunker = executor.submit(() -> {
+                chunk(path, chunkQueue);
+                return null;
+            });
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    work(chunkQueue, resultQueue);
+                    return null;
+                }));
+            }
+            PgnStatistics total = new PgnStatistics();
+            int running = threads;
+            while (running > 0) {
+                PgnStatistics statistics = resultQueue.take();
+                if (statistics == WORKER_DONE) {
+                    running--;
+                } else {
+                    total.merge(statistics);
+                }
+            }
+            chunker.get();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            nanos = System.nanoTime() - start;
+            return total;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("PGN pipeline failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the file into chunks which end between two games and queues them.
+     * The end of input is always queued, so that the workers stop even if the file cannot be read.
+     * @throws IOException also if no game boundary is found in MAX_GAME_SIZE bytes.
+     */
+    private void chunk(Path path, BlockingQueue<Chunk> chunkQueue) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            long offset = 0L;
+            while (true) {
+                ByteBuffer target = ByteBuffer.wrap(buffer, length, buffer.length - length);
+                int read = 0;
+                while (target.hasRemaining() && (read = channel.read(target)) >= 0) {
+                    bytes += read;
+                }
+                length = target.position();
+                if (read < 0) {
+                    if (length > 0) {
+                        queue(chunkQueue, new Chunk(buffer, length, offset));
+                    }
+                    return;
+                }
+                int split = Math.max(lastGameStart(buffer, length), lastGameEnd(buffer, length));
+                if (split <= 0) {
+                    //a single game fills the chunk.
+                    int maxSize = Math.max(chunkSize, MAX_GAME_SIZE);
+                    if (buffer.length >= maxSize) {
+                        throw new IOException("No end of game in " + buffer.length + " bytes at offset " + offset
+                                + " of " + path);
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(maxSize, 2L * buffer.length));
+                    continue;
+                }
+                byte[] next = new byte[Math.max(chunkSize, 2 * (length - split))];
+                System.arraycopy(buffer, split, next, 0, length - split);
+                queue(chunkQueue, new Chunk(buffer, split, offset));
+                offset += split;
+                length -= split;
+                buffer = next;
+            }
+        } finally {
+            chunkQueue.put(END_OF_INPUT);
+        }
+    }
+
+    /**
+     * Queues a chunk, counting the times the workers are behind and the chunker has to wait.
+     */
+    private void queue(BlockingQueue<Chunk> chunkQueue, Chunk chunk) throws InterruptedException {
+        chunks++;
+        if (!chunkQueue.offer(chunk)) {
+            stalls++;
+            chunkQueue.put(chunk);
+        }
+    }
+
+    /**
+     * Returns the index of the last line of a buffer which starts the tags of a game: a line starting with '['
+     * after a line which is not a tag, or -1.
+     */
+    static int lastGameStart(byte[] buffer, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            if (buffer[i] == '[' && buffer[i - 1] == '\n' && !isTagLine(buffer, i - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the last termination marker of a game in a buffer, such as "1-0" between whitespace
+     * outside a tag line or a comment, or -1. This splits the games of movetext without tags.
+     */
+    static int lastGameEnd(byte[] buffer, int length) {
+        //the marker must be followed by whitespace, so that it is known to be whole.
+        for (int i = length - 1; i > 0; i--) {
+            if (!isWhitespace(buffer[i])) {
+                continue;
+            }
+            for (byte[] termination : TERMINATIONS) {
+                int start = i - termination.length;
+                if (start >= 0 && (start == 0 || isWhitespace(buffer[start - 1]))
+                        && Arrays.equals(buffer, start, i, termination, 0, termination.length)
+                        && !isTagOrComment(buffer, start)) {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether an index is on a tag line, after a ';' on its line or within braces.
+     */
+    private static boolean isTagOrComment(byte[] buffer, int index) {
+        int lineStart = index;
+        while (lineStart > 0 && buffer[lineStart - 1] != '\n') {
+            lineStart--;
+        }
+        for (int i = lineStart; i < index; i++) {
+            if (buffer[i] == ';' || (buffer[i] == '[' && isBlank(buffer, lineStart, i))) {
+                return true;
+            }
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            if (buffer[i] == '}') {
+                return false;
+            }
+            if (buffer[i] == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlank(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * Returns whether the line ending at a newline starts with '['.
+     */
+    private static boolean isTagLine(byte[] buffer, int newline) {
+        int start = newline;
+        while (start > 0 && buffer[start - 1] != '\n') {
+            start--;
+        }
+        while (start < newline && (buffer[start] == ' ' || buffer[start] == '\t' || buffer[start] == '\r')) {
+            start++;
+        }
+        return start < newline && buffer[start] == '[';
+    }
+
+    /**
+     * Reads the queued chunks on a chess board of the thread until the end of input.
+     */
+    private void work(BlockingQueue<Chunk> chunkQueue, BlockingQueue<PgnStatistics> resultQueue)
+            throws InterruptedException {
+        ChessBoard chessBoard = new ChessBoard();
+        try {
+            Chunk chunk;
+            while ((chunk = chunkQueue.take()) != END_OF_INPUT) {
+                PgnStatistics statistics = new PgnStatistics(chunk.offset);
+                PgnReader reader = new PgnReader(ByteBuffer.wrap(chunk.bytes, 0, chunk.length), chessBoard);
+                reader.setValidateMoves(validateMoves);
+                try {
+                    reader.read(statistics);
+                } catch (IOException | RuntimeException e) {
+                    //the rest of the chunk is lost, the other chunks are still read.
+                    statistics.error(0L, 0L, "Chunk failed: " + e);
+                }
+                resultQueue.put(statistics);
+            }
+            chunkQueue.put(END_OF_INPUT);
+        } finally {
+            resultQueue.put(WORKER_DONE);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the number of bytes read by the last run.
+     * @return
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of chunks of the last run.
+     * @return
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the number of chunks of the last run which had to wait for a worker.
+     * @return
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /**
+     * Returns the wall time of the last run in nanoseconds.
+     * @return
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Usage: PgnPipeline file [threads] [validate] to read a PGN file and report the throughput, the results and
+     * the most played opening lines.
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PgnPipeline pipeline = new PgnPipeline(threads);
+        pipeline.setValidateMoves(args.length > 2 && "validate".equals(args[2]));
+        PgnStatistics statistics = pipeline.run(Paths.get(args[0]));
+        double seconds = pipeline.getNanos() / 1e9;
+        System.out.printf("%d games, %d moves, %d skipped, %d chunks (%d stalled) in %.2f s with %d threads%n",
+                statistics.getGames(), statistics.getPlies(), statistics.getErrors(), pipeline.getChunks(),
+                pipeline.getStalls(), seconds, threads);
+        System.out.printf("%.0f games/s, %.0f moves/s, %.1f MB/s%n", statistics.getGames() / seconds,
+                statistics.getPlies() / seconds, pipeline.getBytes() / seconds / (1 << 20));
+        for (int i = 0; i < PgnStatistics.RESULTS.length; i++) {
+            System.out.printf("%-8s %d%n", PgnStatistics.RESULTS[i], statistics.getResults(i));
+        }
+        System.out.println(statistics.getDistinctPositions() + " distinct positions in the first "
+                + PgnStatistics.POSITION_PLIES + " plies");
+        for (Map.Entry<String, long[]> line : statistics.getTopOpenings(10)) {
+            long[] counts = line.getValue();
+            System.out.printf("%-40s %8d games  +%d =%d -%d%n", line.getKey(), PgnStatistics.total(counts),
+                    counts[0], counts[1], counts[2]);
+        }
+        for (String message : statistics.getErrorMessages()) {
+            System.err.println(message);
+        }
+    }
+
+    /**
+     * Bytes of whole games and their offset in the file.
+     */
+    private static class Chunk {
+        private final byte[] bytes;
+        private final int length;
+        private final long offset;
+
+        Chunk(byte[] bytes, int length, long offset) {
+            this.bytes = bytes;
+            this.length = length;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.San;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming reader of Portable Game Notation(PGN) files.
+ * The input is read through a fixed size buffer from a channel, or from a byte buffer such as a memory-mapped
+ * region of a file, and each SAN move is decoded against a chess board which plays the game as it is read.
+ * Only the tags and the current token of one game are kept, so the memory used does not depend on the size of
+ * the input. Comments, variations and numeric annotation glyphs are skipped. A malformed game, with an illegal
+ * move, a bad tag or no termination marker, is reported to the visitor and skipped up to the next game.
+ */
+public class PgnReader implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    //movetext tokens are short, a longer token is an error rather than a reason to grow the buffer.
+    private static final int MAX_TOKEN_LENGTH = 255;
+    //tag values are truncated to this many bytes.
+    private static final int MAX_TAG_LENGTH = 4096;
+    //promotion strings of ChessBoard.promotePawn indexed by piece type.
+    private static final String[] PROMOTIONS = {null, "N", "B", "R", "Q", null};
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer source;
+    //the array of a heap byte buffer is read in place, anything else is copied into a buffer of its own.
+    private final byte[] buffer;
+    private final ByteBuffer channelBuffer;
+    private int position;
+    private int limit;
+    //offset in the input of the first byte of the buffer.
+    private long bufferOffset;
+
+    private final StringBuilder token = new StringBuilder(MAX_TOKEN_LENGTH);
+    private final byte[] tagBytes = new byte[MAX_TAG_LENGTH];
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final ChessBoard chessBoard;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private boolean validateMoves;
+
+    //state of the current game.
+    private boolean inGame;
+    private boolean started;
+    private boolean skipping;
+    private long gameNumber;
+
+    private long games;
+    private long errors;
+
+    /**
+     * @param channel input, which is closed by close.
+     */
+    public PgnReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel input, which is closed by close.
+     * @param bufferSize size of the read buffer in bytes.
+     */
+    public PgnReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.source = null;
+        this.buffer = new byte[bufferSize];
+        this.channelBuffer = ByteBuffer.wrap(buffer);
+        this.chessBoard = new ChessBoard();
+    }
+
+    /**
+     * Reads the remaining bytes of a byte buffer, such as a memory-mapped region of a file.
+     * @param source input, its position is advanced as it is read.
+     */
+    public PgnReader(ByteBuffer source) {
+        this(source, new ChessBoard());
+    }
+
+    /**
+     * Reads the remaining bytes of a byte buffer and replays the games on the specified chess board, so that a
+     * thread can reuse its chess board for every buffer it reads.
+     * @param source input, its position is advanced as it is read.
+     * @param chessBoard chess board used only by this reader while it reads.
+     */
+    public PgnReader(ByteBuffer source, ChessBoard chessBoard) {
+        this.channel = null;
+        this.chessBoard = chessBoard;
+        this.channelBuffer = null;
+        if (source.hasArray()) {
+            this.source = null;
+            this.buffer = source.array();
+            this.position = source.arrayOffset() + source.position();
+            this.limit = source.arrayOffset() + source.limit();
+            //offsets are counted from the position of the byte buffer.
+            this.bufferOffset = -position;
+            source.position(source.limit());
+        } else {
+            this.source = source;
+            this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Opens a PGN file.
+     * @param path
+     * @throws IOException
+     */
+    public PgnReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads every game left in the input.
+     * @param visitor receiver of the games.
+     * @return number of games read without error.
+     * @throws IOException
+     */
+    public long read(PgnVisitor visitor) throws IOException {
+        long before = games;
+        int c;
+        while ((c = next()) >= 0) {
+            if (c <= ' ') {
+                continue;
+            }
+            switch (c) {
+                case '[':
+                    if (started) {
+                        //the tags of the next game follow moves without a termination marker.
+                        unread();
+                        abandonGame(visitor, "Missing game termination marker");
+                        break;
+                    }
+                    beginGame();
+                    readTag(visitor);
+                    break;
+                case '{':
+                    skipUntil('}');
+                    break;
+                case ';':
+                    skipUntil('\n');
+                    break;
+                case '(':
+                    skipVariation();
+                    break;
+                case ')':
+                case ']':
+                case '}':
+                    beginGame();
+                    reportError(visitor, "Unexpected '" + (char) c + "'");
+                    break;
+                default:
+                    readToken(c);
+                    if (c == '$') {
+                        //numeric annotation glyph.
+                        break;
+                    }
+                    readMovetext(visitor);
+            }
+        }
+        if (inGame) {
+            abandonGame(visitor, "Unexpected end of input");
+        }
+        return games - before;
+    }
+
+    /**
+     * Handles a token of the movetext: a move number, a SAN move or a game termination marker.
+     */
+    private void readMovetext(PgnVisitor visitor) {
+        beginGame();
+        String result = result();
+        if (result != null) {
+            startGame(visitor);
+            if (!skipping) {
+                games++;
+                visitor.endGame(result);
+            }
+            resetGame();
+            return;
+        }
+        //drop a move number, which can be followed by the move without a space as in "12...Nf6".
+        int digits = 0;
+        while (digits < token.length() && Character.isDigit(token.charAt(digits))) {
+            digits++;
+        }
+        if (digits < token.length() && token.charAt(digits) == '.') {
+            int dots = digits;
+            while (dots < token.length() && token.charAt(dots) == '.') {
+                dots++;
+            }
+            token.delete(0, dots);
+        } else if (digits == token.length()) {
+            return;
+        }
+        if (token.length() == 0) {
+            return;
+        }
+        startGame(visitor);
+        if (skipping) {
+            return;
+        }
+        if (token.length() > MAX_TOKEN_LENGTH) {
+            reportError(visitor, "Token too long");
+            return;
+        }
+        int move = San.parse(chessBoard.getPosition(), token, moves);
+        if (move == Move.NONE) {
+            reportError(visitor, "Illegal or ambiguous move " + token + " in " + chessBoard.toFen());
+            return;
+        }
+        visitor.move(chessBoard, move);
+        if (!validateMoves) {
+            chessBoard.makeMove(move);
+        } else if (!playValidated(move)) {
+            reportError(visitor, "Move " + token + " rejected by the chess pieces in " + chessBoard.toFen());
+        }
+    }
+
+    /**
+     * Plays a legal move through ChessBoard.move or ChessBoard.promotePawn, which validate it with the chess
+     * pieces as the moves of a player are validated.
+     * @return whether the chess pieces accepted the move.
+     */
+    private boolean playValidated(int move) {
+        String from = Position.squareName(Move.from(move));
+        String to = Position.squareName(Move.to(move));
+        String turn = chessBoard.getPosition().getSideToMove() == Position.WHITE
+                ? ChessBoard.WHITE_KIND : ChessBoard.BLACK_KIND;
+        if (Move.isPromotion(move)) {
+            return chessBoard.promotePawn(from, to, turn, PROMOTIONS[Move.promotion(move)]);
+        }
+        return chessBoard.move(from, to, turn);
+    }
+
+    /**
+     * Returns the game termination marker in the token, or null.
+     */
+    private String result() {
+        if (token.length() == 1 && token.charAt(0) == '*') {
+            return "*";
+        }
+        if (token.length() == 3 && token.charAt(1) == '-') {
+            if (token.charAt(0) == '1' && token.charAt(2) == '0') {
+                return "1-0";
+            }
+            if (token.charAt(0) == '0' && token.charAt(2) == '1') {
+                return "0-1";
+            }
+        }
+        if (token.length() == 7 && "1/2-1/2".contentEquals(token)) {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    /**
+     * Reads a tag pair such as [White "Kasparov, Garry"], the opening bracket has been read.
+     */
+    private void readTag(PgnVisitor visitor) throws IOException {
+        int c = skipSpaces();
+        token.setLength(0);
+        while (c > ' ' && c != '"' && c != ']') {
+            if (token.length() < MAX_TOKEN_LENGTH) {
+                token.append((char) c);
+            }
+            c = next();
+        }
+        if (c <= ' ') {
+            c = skipSpaces();
+        }
+        if (c != '"' || token.length() == 0) {
+            unread(c);
+            skipUntil(']');
+            reportError(visitor, "Malformed tag " + token);
+            return;
+        }
+        int length = 0;
+        while ((c = next()) >= 0 && c != '"' && c != '\n') {
+            if (c == '\\') {
+                c = next();
+                if (c < 0) {
+                    break;
+                }
+            }
+            if (length < MAX_TAG_LENGTH) {
+                tagBytes[length++] = (byte) c;
+            }
+        }
+        if (c != '"') {
+            reportError(visitor, "Unterminated tag value " + token);
+            return;
+        }
+        skipUntil(']');
+        if (!skipping) {
+            tags.put(token.toString(), new String(tagBytes, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads a movetext token starting with the specified character into the token buffer.
+     */
+    private void readToken(int first) throws IOException {
+        token.setLength(0);
+        token.append((char) first);
+        int c;
+        while ((c = next()) > ' ') {
+            if (c == '{' || c == '}' || c == '(' || c == ')' || c == '[' || c == ']' || c == ';') {
+                unread();
+                return;
+            }
+            //keep one character more than allowed so that the token is known to be too long.
+            if (token.length() <= MAX_TOKEN_LENGTH) {
+                token.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Skips a variation and the variations and comments nested in it, the opening parenthesis has been read.
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = next()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            }
+        }
+    }
+
+    private void skipUntil(int end) throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c >= 0 && c != end);
+    }
+
+    private int skipSpaces() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c >= 0 && c <= ' ');
+        return c;
+    }
+
+    /**
+     * Starts a new game at its first tag or token.
+     */
+    private void beginGame() {
+        if (!inGame) {
+            inGame = true;
+            gameNumber++;
+        }
+    }
+
+    /**
+     * Sets up the chess board from the tags and passes them to the visitor, once the tags have all been read.
+     */
+    private void startGame(PgnVisitor visitor) {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (skipping) {
+            return;
+        }
+        String fen = tags.get("FEN");
+        try {
+            chessBoard.load(fen != null ? fen : Fen.STARTING_POSITION);
+        } catch (IllegalArgumentException e) {
+            reportError(visitor, e.getMessage());
+            return;
+        }
+        visitor.startGame(gameNumber, tags, chessBoard);
+    }
+
+    /**
+     * Reports the first error of the current game and skips the rest of it.
+     */
+    private void reportError(PgnVisitor visitor, String message) {
+        if (!skipping) {
+            skipping = true;
+            errors++;
+            visitor.error(gameNumber, offset(), message);
+        }
+    }
+
+    /**
+     * Reports a game which ends without its termination marker.
+     */
+    private void abandonGame(PgnVisitor visitor, String message) {
+        reportError(visitor, message);
+        resetGame();
+    }
+
+    private void resetGame() {
+        inGame = false;
+        started = false;
+        skipping = false;
+        tags.clear();
+    }
+
+    /**
+     * Returns the next byte of the input, or -1 at the end of the input.
+     */
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Steps back over the byte returned by the last call to next.
+     */
+    private void unread() {
+        position--;
+    }
+
+    private void unread(int c) {
+        if (c >= 0) {
+            position--;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (channel == null && source == null) {
+            return false;
+        }
+        bufferOffset += limit;
+        position = 0;
+        limit = 0;
+        if (channel != null) {
+            channelBuffer.clear();
+            int read;
+            do {
+                read = channel.read(channelBuffer);
+            } while (read == 0);
+            limit = Math.max(read, 0);
+        } else if (source.hasRemaining()) {
+            limit = Math.min(source.remaining(), buffer.length);
+            source.get(buffer, 0, limit);
+        }
+        return limit > 0;
+    }
+
+    private long offset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Sets whether the moves are replayed through ChessBoard.move and ChessBoard.promotePawn, so that every move
+     * is validated by the chess pieces too, instead of being played directly.
+     * @param validateMoves
+     */
+    public void setValidateMoves(boolean validateMoves) {
+        this.validateMoves = validateMoves;
+    }
+
+    /**
+     * Returns the number of games read without error.
+     * @return
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of malformed games which have been skipped.
+     * @return
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Usage: PgnReader file... to read PGN files and report the number of games and moves and the games per second.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        long[] plies = new long[1];
+        PgnVisitor visitor = new PgnVisitor() {
+            @Override
+            public void move(ChessBoard chessBoard, int move) {
+                plies[0]++;
+            }
+
+            @Override
+            public void error(long gameNumber, long offset, String message) {
+                System.err.println("Game " + gameNumber + " at byte " + offset + ": " + message);
+            }
+        };
+        for (String file : args) {
+            long start = System.nanoTime();
+            plies[0] = 0L;
+            try (PgnReader reader = new PgnReader(Paths.get(file))) {
+                reader.read(visitor);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s: %d games, %d moves, %d skipped in %.2f s, %.0f games/s%n", file,
+                        reader.getGames(), plies[0], reader.getErrors(), seconds, reader.getGames() / seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.MoveGenerator;
+import chess.San;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of the games read by a PgnReader: the number of games and moves, the results, the results of each
+ * opening line and the number of times each position of the opening was reached.
+ * Statistics gathered separately, for example by each thread of a PgnPipeline, are combined with merge.
+ */
+public class PgnStatistics implements PgnVisitor {
+    //plies of the opening lines, which are counted with the result of their games.
+    public static final int OPENING_PLIES = 6;
+    //plies of each game whose positions are counted by Zobrist key.
+    public static final int POSITION_PLIES = 16;
+    public static final String[] RESULTS = {"1-0", "1/2-1/2", "0-1", "*"};
+    private static final int MAX_ERROR_MESSAGES = 20;
+
+    //offset of the read input in the whole input, added to the offsets of the errors.
+    private final long inputOffset;
+    private long games;
+    private long plies;
+    private long errors;
+    private final long[] results = new long[RESULTS.length];
+    //opening line in SAN to the number of games of each result.
+    private final Map<String, long[]> openings = new HashMap<>();
+    //Zobrist key to the number of times the position was reached.
+    private final Map<Long, Long> positions = new HashMap<>();
+    private final List<String> errorMessages = new ArrayList<>();
+
+    //state of the current game.
+    private final StringBuilder opening = new StringBuilder();
+    private final long[] keys = new long[POSITION_PLIES];
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int ply;
+
+    public PgnStatistics() {
+        this(0L);
+    }
+
+    /**
+     * @param inputOffset offset of the read input in the whole input.
+     */
+    public PgnStatistics(long inputOffset) {
+        this.inputOffset = inputOffset;
+    }
+
+    @Override
+    public void startGame(long gameNumber, Map<String, String> tags, ChessBoard chessBoard) {
+        opening.setLength(0);
+        ply = 0;
+    }
+
+    @Override
+    public void move(ChessBoard chessBoard, int move) {
+        if (ply < OPENING_PLIES) {
+            if (ply > 0) {
+                opening.append(' ');
+            }
+            opening.append(San.format(chessBoard.getPosition(), move, moves));
+        }
+        if (ply < POSITION_PLIES) {
+            keys[ply] = chessBoard.getKey();
+        }
+        ply++;
+    }
+
+    @Override
+    public void endGame(String result) {
+        int index = 0;
+        while (index < RESULTS.length - 1 && !RESULTS[index].equals(result)) {
+            index++;
+        }
+        games++;
+        plies += ply;
+        results[index]++;
+        openings.computeIfAbsent(opening.toString(), line -> new long[RESULTS.length])[index]++;
+        //the positions are only counted once the game is known to be valid.
+        for (int i = 0; i < Math.min(ply, POSITION_PLIES); i++) {
+            positions.merge(keys[i], 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public void error(long gameNumber, long offset, String message) {
+        //the game of an error is only known within a chunk, so errors are located by their offset.
+        errors++;
+        if (errorMessages.size() < MAX_ERROR_MESSAGES) {
+            errorMessages.add("byte " + (inputOffset + offset) + ": " + message);
+        }
+    }
+
+    /**
+     * Adds the statistics of other games.
+     * @param other
+     */
+    public void merge(PgnStatistics other) {
+        games += other.games;
+        plies += other.plies;
+        errors += other.errors;
+        for (int i = 0; i < RESULTS.length; i++) {
+            results[i] += other.results[i];
+        }
+        for (Map.Entry<String, long[]> entry : other.openings.entrySet()) {
+            long[] counts = openings.computeIfAbsent(entry.getKey(), line -> new long[RESULTS.length]);
+            for (int i = 0; i < RESULTS.length; i++) {
+                counts[i] += entry.getValue()[i];
+            }
+        }
+        for (Map.Entry<Long, Long> entry : other.positions.entrySet()) {
+            positions.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        for (String message : other.errorMessages) {
+            if (errorMessages.size() < MAX_ERROR_MESSAGES) {
+                errorMessages.add(message);
+            }
+        }
+    }
+
+    /**
+     * Returns the most played opening lines, most played first.
+     * @param count maximum number of lines.
+     * @return
+     */
+    public List<Map.Entry<String, long[]>> getTopOpenings(int count) {
+        List<Map.Entry<String, long[]>> lines = new ArrayList<>(openings.entrySet());
+        lines.sort((a, b) -> Long.compare(total(b.getValue()), total(a.getValue())));
+        return lines.subList(0, Math.min(count, lines.size()));
+    }
+
+    public static long total(long[] counts) {
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getPlies() {
+        return plies;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the number of games of a result.
+     * @param index index of the result in RESULTS.
+     * @return
+     */
+    public long getResults(int index) {
+        return results[index];
+    }
+
+    /**
+     * Returns the number of distinct positions in the first POSITION_PLIES plies of the games.
+     * @return
+     */
+    public int getDistinctPositions() {
+        return positions.size();
+    }
+
+    /**
+     * Returns the number of times a position was reached in the first POSITION_PLIES plies of the games.
+     * @param key Zobrist key of the position.
+     * @return
+     */
+    public long getPositionCount(long key) {
+        return positions.getOrDefault(key, 0L);
+    }
+
+    public List<String> getErrorMessages() {
+        return Collections.unmodifiableList(errorMessages);
+    }
+}
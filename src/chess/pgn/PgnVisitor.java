@@ -0,0 +1,44 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+
+import java.util.Map;
+
+/**
+ * Receives the games of a PgnReader one move at a time, so that no game has to be kept in memory.
+ * The chess board and the tags are reused for the next game and are only valid during a call.
+ */
+public interface PgnVisitor {
+
+    /**
+     * Called once the tags of a game are read, before its first move.
+     * @param gameNumber number of the game in the input, starting at 1.
+     * @param tags tag pairs of the game in input order.
+     * @param chessBoard chess board set up at the starting position of the game.
+     */
+    default void startGame(long gameNumber, Map<String, String> tags, ChessBoard chessBoard) {
+    }
+
+    /**
+     * Called for every move of the main line, before the move is played on the chess board.
+     * @param chessBoard chess board at the position before the move.
+     * @param move encoded legal move.
+     */
+    void move(ChessBoard chessBoard, int move);
+
+    /**
+     * Called after the last move of a game which has been read without error.
+     * @param result game termination marker: "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    default void endGame(String result) {
+    }
+
+    /**
+     * Called when a game is malformed. The rest of the game is skipped and endGame is not called for it.
+     * @param gameNumber number of the game in the input, starting at 1.
+     * @param offset byte offset of the input where the error was found.
+     * @param message
+     */
+    default void error(long gameNumber, long offset, String message) {
+    }
+}
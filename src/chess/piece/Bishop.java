@@ -1,7 +1,8 @@
 package chess.piece;
 
+import chess.Attacks;
 import chess.ChessBoard;
-import chess.FileRank;
+import chess.Position;
 
 import java.util.Arrays;
 import java.util.List;
@@ -13,7 +14,6 @@ import java.util.List;
 public class Bishop extends ChessPiece {
     public static final List<String> INITIAL_POSITIONS = Arrays.asList("c", "f");
     private static final String SYMBOL = "B";
-    private static final List<String> VALID_MOVES = Arrays.asList(NORTH_EAST, SOUTH_EAST, SOUTH_WEST, NORTH_WEST);
     public static final int MAX_STEPS = 8;
 
     public Bishop(String kind, ChessBoard chessBoard) {
@@ -30,9 +30,15 @@ public class Bishop extends ChessPiece {
     }
 
     @Override
-    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
-        String toFileRank = toPosition.getFileRank().get(FileRank.FILE_KEY) + toPosition.getFileRank().get(FileRank.RANK_KEY);
-        return validateMoveAndUpdatePosition( getValidMoves(VALID_MOVES, MAX_STEPS,
-                this.currentPosition, toFileRank),toFileRank,modifyPosition,toPosition);
+    public int getType() {
+        return Position.BISHOP;
+    }
+
+    @Override
+    public boolean move(int to, boolean modifyPosition) {
+        Position position = this.chessBoard.getPosition();
+        long targets = Attacks.bishopAttacks(this.square, position.occupied())
+                & ~position.pieces(this.color);
+        return validateMoveAndUpdatePosition(targets, to, modifyPosition);
     }
 }
@@ -2,17 +2,21 @@ package chess.piece;
 
 import chess.ChessBoard;
 import chess.FileRank;
+import chess.MoveGenerator;
+import chess.Position;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Chess piece in chess.
  */
 public abstract class ChessPiece {
-    protected FileRank currentPosition;
+    //square of the chess piece in the bitboard position, or NO_SQUARE if it is not on the board.
+    protected int square = Position.NO_SQUARE;
     protected String kind;
+    //color index of the kind in the bitboard position.
+    protected int color;
 
     //list of possible moves of all chess pieces.
     protected static final String NORTH = "NORTH";
@@ -30,6 +34,7 @@ public abstract class ChessPiece {
 
     public ChessPiece(String kind, ChessBoard chessBoard) {
         this.kind = kind;
+        this.color = Position.colorOf(kind);
         this.chessBoard = chessBoard;
     }
 
@@ -40,7 +45,18 @@ public abstract class ChessPiece {
      * @param modifyPosition
      * @return
      */
-    public abstract Boolean move(FileRank toPosition, Boolean modifyPosition);
+    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
+        return move(toPosition.getSquare(), (boolean) modifyPosition);
+    }
+
+    /**
+     * Perform a move to a square and return if the move is valid, without allocating.
+     *
+     * @param to             destination square.
+     * @param modifyPosition whether to just check if its a valid move or to modify the position if its a valid move
+     * @return
+     */
+    public abstract boolean move(int to, boolean modifyPosition);
 
     /**
      * Sets the current position(FileRanK) of a chess piece.
@@ -48,16 +64,34 @@ public abstract class ChessPiece {
      * @param currentPosition
      */
     public void setCurrentPosition(FileRank currentPosition) {
-        this.currentPosition = currentPosition;
+        this.square = currentPosition == null ? Position.NO_SQUARE : currentPosition.getSquare();
     }
 
     /**
-     * Retruns the current position(FileRank) of a chess piece.
+     * Retruns the current position(FileRank) of a chess piece, a view of its square on its chess board.
      *
      * @return
      */
     public FileRank getCurrentPosition() {
-        return this.currentPosition;
+        return this.square == Position.NO_SQUARE ? null : this.chessBoard.getFileRank(this.square);
+    }
+
+    /**
+     * Sets the square of the chess piece in the bitboard position.
+     *
+     * @param square
+     */
+    public void setSquare(int square) {
+        this.square = square;
+    }
+
+    /**
+     * Returns the square of the chess piece in the bitboard position, or Position.NO_SQUARE.
+     *
+     * @return
+     */
+    public int getSquare() {
+        return this.square;
     }
 
     /**
@@ -69,6 +103,15 @@ public abstract class ChessPiece {
         return this.kind;
     }
 
+    /**
+     * Returns the color index of the chess piece in the bitboard position.
+     *
+     * @return
+     */
+    public int getColor() {
+        return this.color;
+    }
+
     /**
      * Returns the unique symbol of the piece.
      *
@@ -76,8 +119,17 @@ public abstract class ChessPiece {
      */
     public abstract String getSymbol();
 
+    /**
+     * Returns the piece type of the piece in the bitboard position.
+     *
+     * @return
+     */
+    public abstract int getType();
+
     /**
      * Returns all valid moves for a particular ChessPiece object.
+     * The pieces generate their moves from the precomputed tables of Attacks, this walk is kept for
+     * callers of the string based API.
      *
      * @param directions   valid moving directions of the piece.
      * @param maxSteps     maximum number of steps the piece can move along any direction.
@@ -85,15 +137,15 @@ public abstract class ChessPiece {
      * @param toFileRank   target/destination position of the piece.
      * @return
      */
+    @Deprecated
     public List<String> getValidMoves(List<String> directions, int maxSteps,
                                       FileRank fromPosition, String toFileRank) {
         //Set of valid moves
         List<String> validMoves = new ArrayList<>();
 
-        String fromFile = fromPosition.getFileRank().get(FileRank.FILE_KEY);
-        String fromRank = fromPosition.getFileRank().get(FileRank.RANK_KEY);
-        int fileIndex = Arrays.asList(ChessBoard.FILES).indexOf(fromFile);
-        int rankIndex = Arrays.asList(ChessBoard.RANKS).indexOf(fromRank);
+        //RANKS are ordered from the eighth rank to the first rank.
+        int fileIndex = Position.fileOf(fromPosition.getSquare());
+        int rankIndex = ChessBoard.RANKS.length - 1 - Position.rankOf(fromPosition.getSquare());
 
         //For each valid direction find out possible valid destinations and return the possible destinations.
         for (String direction : directions) {
@@ -244,12 +296,12 @@ public abstract class ChessPiece {
      */
     public Boolean isClearPath(String targetFileRank, String toFileRank) {
         Boolean isValid;
+        Position position = this.chessBoard.getPosition();
+        int target = Position.square(targetFileRank);
         //Check if there is an obstructing ChessPiece on the path to the destination.
-        if (this.chessBoard.getChessBoard().get(targetFileRank).getOccupant() != null) {
+        if (position.isOccupied(target)) {
             //check whether the target is not obstructed  and the King is safe.
-            if (targetFileRank.equals(toFileRank)
-                    && !((ChessPiece) (this.chessBoard.getChessBoard().
-                    get(targetFileRank).getOccupant())).getKind().equals(this.kind)) {
+            if (targetFileRank.equals(toFileRank) && position.colorAt(target) != this.color) {
                 isValid = true;
             } else {
                 isValid = false;
@@ -262,26 +314,23 @@ public abstract class ChessPiece {
 
     /**
      * Return if a particular move of a chess piece causes a check to its king.
+     * The move is decided from the checks and pins of the position without modifying the chess board.
      *
      * @param toFileRank destination.
      * @return
      */
     public Boolean getIsKingChecked(String toFileRank) {
-        Boolean isChecked;
-        FileRank tempPosition = this.currentPosition;
-        Object tempOccupant = chessBoard.getChessBoard().get(toFileRank).getOccupant();
-        this.currentPosition = chessBoard.getChessBoard().get(toFileRank);
-        this.chessBoard.getChessBoard().get(tempPosition.getFileRankString()).setOccupant(null);
-        this.chessBoard.getChessBoard().get(toFileRank).setOccupant(this);
-        if (this.chessBoard.getKing(this.kind).identifyCheck()) {
-            isChecked = true;
-        } else {
-            isChecked = false;
-        }
-        this.currentPosition = tempPosition;
-        this.chessBoard.getChessBoard().get(tempPosition.getFileRankString()).setOccupant(this);
-        this.chessBoard.getChessBoard().get(toFileRank).setOccupant(tempOccupant);
-        return isChecked;
+        return isKingChecked(Position.square(toFileRank));
+    }
+
+    /**
+     * Return if a move of the chess piece to a square causes a check to its king, without allocating.
+     *
+     * @param to destination square.
+     * @return
+     */
+    public boolean isKingChecked(int to) {
+        return !MoveGenerator.isLegal(this.chessBoard.getPosition(), this.square, to);
     }
 
     /**
@@ -308,11 +357,47 @@ public abstract class ChessPiece {
                     } else if (this instanceof King) {
                         ((King) this).setIsMoved(true);
                     }
-                    this.currentPosition = toPosition;
+                    this.square = toPosition.getSquare();
                 }
                 break;
             }
         }
         return isValid;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns if the specified destination is one of the target squares of the chess piece in the current context.
+     *
+     * @param targets        bitboard of the target squares of the piece.
+     * @param toPosition     destination filerank.
+     * @param modifyPosition whether to just check if its a valid move or to modify the position if its a valid move
+     * @return
+     */
+    public Boolean validateMoveAndUpdatePosition(long targets, FileRank toPosition, Boolean modifyPosition) {
+        return validateMoveAndUpdatePosition(targets, toPosition.getSquare(), (boolean) modifyPosition);
+    }
+
+    /**
+     * Returns if the specified destination square is one of the target squares of the chess piece, without
+     * allocating.
+     *
+     * @param targets        bitboard of the target squares of the piece.
+     * @param to             destination square.
+     * @param modifyPosition whether to just check if its a valid move or to modify the position if its a valid move
+     * @return
+     */
+    public boolean validateMoveAndUpdatePosition(long targets, int to, boolean modifyPosition) {
+        if ((targets & Position.bit(to)) == 0 || isKingChecked(to)) {
+            return false;
+        }
+        if (modifyPosition) {
+            if (this instanceof Rook) {
+                ((Rook) this).setIsMoved(true);
+            } else if (this instanceof King) {
+                ((King) this).setIsMoved(true);
+            }
+            this.square = to;
+        }
+        return true;
+    }
+}
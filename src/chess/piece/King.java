@@ -1,12 +1,12 @@
 package chess.piece;
 
+import chess.Attacks;
 import chess.ChessBoard;
-import chess.FileRank;
+import chess.Move;
+import chess.Position;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * King chess piece.
@@ -16,9 +16,6 @@ public class King extends ChessPiece {
     public static final List<String> INITIAL_POSITIONS = Arrays.asList("e");
     private static final String SYMBOL = "K";
     public static final String CASTLE = "CASTLE";
-    private static final List<String> VALID_MOVES = Arrays.asList(NORTH,
-            NORTH_EAST, EAST, SOUTH_EAST, SOUTH, SOUTH_WEST, WEST, NORTH_WEST);
-    private static int MAX_STEPS = 1;
     private Boolean isMoved = false;
 
 
@@ -36,11 +33,15 @@ public class King extends ChessPiece {
     }
 
     @Override
-    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
-        String toFileRank = toPosition.getFileRank().get(FileRank.FILE_KEY) + toPosition.getFileRank().get(FileRank.RANK_KEY);
-        return validateMoveAndUpdatePosition(getValidMoves(VALID_MOVES,
-                this.MAX_STEPS, this.currentPosition, toFileRank),
-                toFileRank, modifyPosition, toPosition);
+    public int getType() {
+        return Position.KING;
+    }
+
+    @Override
+    public boolean move(int to, boolean modifyPosition) {
+        long targets = Attacks.kingAttacks(this.square)
+                & ~this.chessBoard.getPosition().pieces(this.color);
+        return validateMoveAndUpdatePosition(targets, to, modifyPosition);
     }
 
     /**
@@ -48,16 +49,7 @@ public class King extends ChessPiece {
      * @return
      */
     public Boolean identifyCheck() {
-        for (Map.Entry entry : this.chessBoard.getChessBoard().entrySet()) {
-            Object occupant = ((FileRank) entry.getValue()).getOccupant();
-            if (occupant != null && !((ChessPiece) occupant).getKind().equals(this.kind)) {
-                ChessPiece piece = (ChessPiece) ((FileRank) entry.getValue()).getOccupant();
-                if (piece.move(this.currentPosition, false)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return this.chessBoard.getPosition().isAttacked(this.square, this.color ^ 1);
     }
 
     /**
@@ -65,14 +57,15 @@ public class King extends ChessPiece {
      * @return
      */
     public Boolean getIsCheckMate() {
-        for (ChessPiece piece : this.chessBoard.getPieces(this.kind)) {
-            for (FileRank fileRank : this.chessBoard.getChessBoard().values()) {
-                if (piece.move(fileRank, false)) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return !this.chessBoard.hasLegalMoves(this.kind);
+    }
+
+    /**
+     * Returns if the king(this) is not check but neither the king nor any other friendly chess piece can move.
+     * @return
+     */
+    public Boolean getIsStaleMate() {
+        return !identifyCheck() && !this.chessBoard.hasLegalMoves(this.kind);
     }
 
     /**
@@ -98,85 +91,55 @@ public class King extends ChessPiece {
      * @return
      */
     public Boolean castleMove(String toFileRank, Boolean modify) {
+        if (toFileRank.length() != 2 || toFileRank.charAt(0) < 'a' || toFileRank.charAt(0) > 'h'
+                || toFileRank.charAt(1) < '1' || toFileRank.charAt(1) > '8') {
+            return false;
+        }
+        return castleMove(Position.square(toFileRank), (boolean) modify);
+    }
+
+    /**
+     * Performs castle move to a square and returns its validity, without allocating.
+     * @param to destination square of the king, c1, g1, c8 or g8.
+     * @param modify whether to play the castle move if it is valid.
+     * @return
+     */
+    public boolean castleMove(int to, boolean modify) {
         //Ensures the required context for a castle move
-        if (!this.getIsMoved() && !this.identifyCheck()) {
-            //Get each rook of the kind of the king and valida the castle move for each of those.
-            List<ChessPiece> rooks = this.chessBoard.getPieces(this.kind).stream().filter(piece -> piece instanceof Rook).collect(Collectors.toList());
-            for (ChessPiece rook : rooks) {
-                if (!((Rook) rook).getIsMoved()) {
-                    //Queen side white
-                    if (rook.getCurrentPosition().getFileRankString().equals("a1")) {
-                        if (chessBoard.getChessBoard().get("d1").getOccupant() == null &&
-                                chessBoard.getChessBoard().get("c1").getOccupant() == null &&
-                                chessBoard.getChessBoard().get("b1").getOccupant() == null &&
-                                !this.getIsKingChecked("d1") &&
-                                !this.getIsKingChecked("c1")) {
-                            if (toFileRank.equals("c1")) {
-                                if (modify) {
-                                    chessBoard.getChessBoard().get("a1").setOccupant(null);
-                                    chessBoard.getChessBoard().get("d1").setOccupant(rook);
-                                    this.currentPosition = chessBoard.getChessBoard().get(toFileRank);
-                                    rook.setCurrentPosition(chessBoard.getChessBoard().get("d1"));
-                                }
-                                return true;
-                            }
-                        }
-
-                    //king side white
-                    } else if (rook.getCurrentPosition().getFileRankString().equals("h1")) {
-                        if (chessBoard.getChessBoard().get("f1").getOccupant() == null &&
-                                chessBoard.getChessBoard().get("g1").getOccupant() == null &&
-                                !this.getIsKingChecked("f1") &&
-                                !this.getIsKingChecked("g1")) {
-                            if (toFileRank.equals("g1")) {
-                                if (modify) {
-                                    chessBoard.getChessBoard().get("h1").setOccupant(null);
-                                    chessBoard.getChessBoard().get("f1").setOccupant(rook);
-                                    this.currentPosition = chessBoard.getChessBoard().get(toFileRank);
-                                    rook.setCurrentPosition(chessBoard.getChessBoard().get("f1"));
-                                }
-                                return true;
-                            }
-                        }
-
-                    //Queen side black
-                    } else if (rook.getCurrentPosition().getFileRankString().equals("a8")) {
-                        if (chessBoard.getChessBoard().get("d8").getOccupant() == null &&
-                                chessBoard.getChessBoard().get("c8").getOccupant() == null &&
-                                chessBoard.getChessBoard().get("b8").getOccupant() == null &&
-                                !this.getIsKingChecked("d8") &&
-                                !this.getIsKingChecked("c8")) {
-                            if (toFileRank.equals("c8")) {
-                                if (modify) {
-                                    chessBoard.getChessBoard().get("a8").setOccupant(null);
-                                    chessBoard.getChessBoard().get("d8").setOccupant(rook);
-                                    this.currentPosition = chessBoard.getChessBoard().get(toFileRank);
-                                    rook.setCurrentPosition(chessBoard.getChessBoard().get("d8"));
-                                }
-                                return true;
-                            }
-                        }
-
-                    //King side black
-                    } else {
-                        if (chessBoard.getChessBoard().get("f8").getOccupant() == null &&
-                                chessBoard.getChessBoard().get("g8").getOccupant() == null &&
-                                !this.getIsKingChecked("f8") &&
-                                !this.getIsKingChecked("g8")) {
-                            if (toFileRank.equals("g8")) {
-                                if (modify) {
-                                    this.currentPosition = chessBoard.getChessBoard().get(toFileRank);
-                                    chessBoard.getChessBoard().get("h8").setOccupant(null);
-                                    chessBoard.getChessBoard().get("f8").setOccupant(rook);
-                                    rook.setCurrentPosition(chessBoard.getChessBoard().get("f8"));
-                                }
-                                return true;
-                            }
-                        }
-                    }
+        if (this.isMoved || this.identifyCheck()) {
+            return false;
+        }
+        Position position = this.chessBoard.getPosition();
+        int from = this.square;
+        //Validate the castle move for each rook of the kind of the king which has not moved.
+        List<ChessPiece> pieces = this.chessBoard.getPieces(this.kind);
+        for (int i = 0; i < pieces.size(); i++) {
+            ChessPiece piece = pieces.get(i);
+            if (!(piece instanceof Rook) || ((Rook) piece).getIsMoved()) {
+                continue;
+            }
+            int rook = piece.getSquare();
+            int rank = Position.rankOf(rook);
+            boolean isValid;
+            int target;
+            if (Position.fileOf(rook) == 0) {
+                //Queen side, the b, c and d squares are empty and the king does not pass through a check
+                target = Position.square(2, rank);
+                isValid = !position.isOccupied(Position.square(3, rank)) && !position.isOccupied(target)
+                        && !position.isOccupied(Position.square(1, rank))
+                        && !isKingChecked(Position.square(3, rank)) && !isKingChecked(target);
+            } else {
+                //King side, the f and g squares are empty and the king does not pass through a check
+                target = Position.square(6, rank);
+                isValid = !position.isOccupied(Position.square(5, rank)) && !position.isOccupied(target)
+                        && !isKingChecked(Position.square(5, rank)) && !isKingChecked(target);
+            }
+            if (isValid && to == target) {
+                if (modify) {
+                    chessBoard.makeMove(Move.of(from, to, Move.CASTLE));
                 }
+                return true;
             }
-
         }
         return false;
     }
@@ -1,7 +1,8 @@
 package chess.piece;
 
+import chess.Attacks;
 import chess.ChessBoard;
-import chess.FileRank;
+import chess.Position;
 
 import java.util.Arrays;
 import java.util.List;
@@ -13,7 +14,6 @@ public class Knight extends ChessPiece {
 
     public static final List<String> INITIAL_POSITIONS = Arrays.asList("b", "g");
     private static final String SYMBOL = "N";
-    private static final List<String> VALID_MOVES = Arrays.asList(LSHAPE);
 
     public Knight(String kind, ChessBoard chessBoard) {
         super(kind, chessBoard);
@@ -29,9 +29,14 @@ public class Knight extends ChessPiece {
     }
 
     @Override
-    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
-        String toFileRank = toPosition.getFileRank().get(FileRank.FILE_KEY) + toPosition.getFileRank().get(FileRank.RANK_KEY);
-        return validateMoveAndUpdatePosition(getValidMoves(VALID_MOVES, 3, this.currentPosition, toFileRank),
-                toFileRank, modifyPosition, toPosition);
+    public int getType() {
+        return Position.KNIGHT;
+    }
+
+    @Override
+    public boolean move(int to, boolean modifyPosition) {
+        long targets = Attacks.knightAttacks(this.square)
+                & ~this.chessBoard.getPosition().pieces(this.color);
+        return validateMoveAndUpdatePosition(targets, to, modifyPosition);
     }
 }
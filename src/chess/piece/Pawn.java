@@ -1,29 +1,17 @@
 package chess.piece;
 
+import chess.Attacks;
 import chess.ChessBoard;
 import chess.FileRank;
-
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import chess.Position;
 
 /**
  * Pawn chess piece.
  */
 public class Pawn extends ChessPiece {
     private static final String SYMBOL = "p";
-    private static final List<String> WHITE_DIRECTIONS = Arrays.asList(NORTH);
-    private static final List<String> BLACK_DIRECTIONS = Arrays.asList(SOUTH);
-    private static final Map<String, List<String>> DIRECTIONS = new HashMap<>();
     private String promotion = "Q";
 
-    //assign directions based on the kind.
-    static {
-        DIRECTIONS.put(ChessBoard.WHITE_KIND, WHITE_DIRECTIONS);
-        DIRECTIONS.put(ChessBoard.BLACK_KIND, BLACK_DIRECTIONS);
-    }
-
     public Pawn(String kind, ChessBoard chessBoard) {
         super(kind, chessBoard);
     }
@@ -35,34 +23,27 @@ public class Pawn extends ChessPiece {
      * @return
      */
     public Boolean moveDiagonal(FileRank toPosition) {
-        String fromFile = this.currentPosition.getFileRank().get(FileRank.FILE_KEY);
-        String fromRank = this.currentPosition.getFileRank().get(FileRank.RANK_KEY);
-        int fromFileIndex = Arrays.asList(ChessBoard.FILES).indexOf(fromFile);
-        int fromRankIndex = Arrays.asList(ChessBoard.RANKS).indexOf(fromRank);
-        if (this.kind.equals(ChessBoard.WHITE_KIND)) {
-            if (fromFileIndex + 1 < ChessBoard.FILES.length && fromRankIndex - 1 > -1) {
-                if (toPosition.getFileRankString().equals(ChessBoard.FILES[fromFileIndex + 1] + ChessBoard.RANKS[fromRankIndex - 1])) {
-                    return true;
-                }
-            }
-            if (fromFileIndex - 1 > -1 && fromRankIndex - 1 > -1) {
-                if (toPosition.getFileRankString().equals(ChessBoard.FILES[fromFileIndex - 1] + ChessBoard.RANKS[fromRankIndex - 1])) {
-                    return true;
-                }
-            }
-        } else {
-            if (fromFileIndex + 1 < ChessBoard.FILES.length && fromRankIndex + 1 < ChessBoard.RANKS.length) {
-                if (toPosition.getFileRankString().equals(ChessBoard.FILES[fromFileIndex + 1] + ChessBoard.RANKS[fromRankIndex + 1])) {
-                    return true;
-                }
-            }
-            if (fromFileIndex - 1 > -1 && fromRankIndex + 1 < ChessBoard.RANKS.length) {
-                if (toPosition.getFileRankString().equals(ChessBoard.FILES[fromFileIndex - 1] + ChessBoard.RANKS[fromRankIndex + 1])) {
-                    return true;
-                }
+        return (Attacks.pawnAttacks(this.color, this.square)
+                & Position.bit(toPosition.getSquare())) != 0;
+    }
+
+    /**
+     * Returns the bitboard of the empty squares the pawn can be pushed to.
+     * @param occupied bitboard of the occupied squares.
+     * @return
+     */
+    public long getPushTargets(long occupied) {
+        int forward = this.color == Position.WHITE ? 8 : -8;
+        int square = this.square;
+        long targets = 0L;
+        for (int steps = getMaxSteps(); steps > 0; steps--) {
+            square += forward;
+            if (square < 0 || square > 63 || (occupied & Position.bit(square)) != 0) {
+                break;
             }
+            targets |= Position.bit(square);
         }
-        return false;
+        return targets;
     }
 
     /**
@@ -72,10 +53,8 @@ public class Pawn extends ChessPiece {
     public int getMaxSteps() {
         int maxSteps;
         //Enpassant move
-        if ((this.kind.equals(ChessBoard.WHITE_KIND) &&
-                this.currentPosition.getFileRank().get(FileRank.RANK_KEY).equals(ChessBoard.RANKS[6])) |
-                (this.kind.equals(ChessBoard.BLACK_KIND)
-                        && this.currentPosition.getFileRank().get(FileRank.RANK_KEY).equals(ChessBoard.RANKS[1]))) {
+        if ((this.color == Position.WHITE && Position.rankOf(this.square) == 1) |
+                (this.color == Position.BLACK && Position.rankOf(this.square) == 6)) {
             maxSteps = 2;
         } else {
             maxSteps = 1;
@@ -84,27 +63,22 @@ public class Pawn extends ChessPiece {
     }
 
     @Override
-    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
-        Boolean isValid;
-        String toFileRank = toPosition.getFileRank().get(FileRank.FILE_KEY) +
-                toPosition.getFileRank().get(FileRank.RANK_KEY);
-        int maxSteps = getMaxSteps();
-        if (toPosition.getOccupant() == null) {
-            return validateMoveAndUpdatePosition(
-                    getValidMoves(DIRECTIONS.get(this.kind),
-                    maxSteps,this.currentPosition,toFileRank),
-                    toFileRank,modifyPosition,toPosition);
-        } else {
-            if (moveDiagonal(toPosition) && !getIsKingChecked(toFileRank)) {
-                isValid = true;
-                if(modifyPosition) {
-                    this.currentPosition = toPosition;
-                }
-            } else {
-                isValid = false;
+    public boolean move(int to, boolean modifyPosition) {
+        Position position = this.chessBoard.getPosition();
+        long targets;
+        if (!position.isOccupied(to)) {
+            targets = getPushTargets(position.occupied());
+            //a pawn can capture en passant right after the opponent's pawn passed it with a two step move.
+            if (position.getEnPassantSquare() != Position.NO_SQUARE && position.getSideToMove() == this.color) {
+                targets |= Attacks.pawnAttacks(this.color, this.square)
+                        & Position.bit(position.getEnPassantSquare());
             }
+        } else {
+            //a pawn can only move diagonally to capture a chess piece of the opponent.
+            targets = Attacks.pawnAttacks(this.color, this.square)
+                    & position.pieces(this.color ^ 1);
         }
-        return isValid;
+        return validateMoveAndUpdatePosition(targets, to, modifyPosition);
     }
 
     @Override
@@ -116,6 +90,11 @@ public class Pawn extends ChessPiece {
         }
     }
 
+    @Override
+    public int getType() {
+        return Position.PAWN;
+    }
+
     /**
      * Set the promotion type.
      * @param promotion
@@ -1,7 +1,8 @@
 package chess.piece;
 
+import chess.Attacks;
 import chess.ChessBoard;
-import chess.FileRank;
+import chess.Position;
 
 import java.util.Arrays;
 import java.util.List;
@@ -13,7 +14,6 @@ public class Queen extends ChessPiece {
 
     public static final List<String> INITIAL_POSITIONS = Arrays.asList("d");
     private static final String SYMBOL = "Q";
-    private static final List<String> VALID_MOVES = Arrays.asList(NORTH,NORTH_EAST,EAST,SOUTH_EAST,SOUTH,SOUTH_WEST,WEST,NORTH_WEST);
     public static final int MAX_STEPS = 8;
 
     public Queen(String kind, ChessBoard chessBoard) {
@@ -30,9 +30,15 @@ public class Queen extends ChessPiece {
     }
 
     @Override
-    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
-        String toFileRank = toPosition.getFileRank().get(FileRank.FILE_KEY) + toPosition.getFileRank().get(FileRank.RANK_KEY);
-        return validateMoveAndUpdatePosition( getValidMoves(VALID_MOVES, MAX_STEPS,
-                this.currentPosition, toFileRank),toFileRank,modifyPosition,toPosition);
+    public int getType() {
+        return Position.QUEEN;
+    }
+
+    @Override
+    public boolean move(int to, boolean modifyPosition) {
+        Position position = this.chessBoard.getPosition();
+        long targets = Attacks.queenAttacks(this.square, position.occupied())
+                & ~position.pieces(this.color);
+        return validateMoveAndUpdatePosition(targets, to, modifyPosition);
     }
 }
@@ -1,7 +1,8 @@
 package chess.piece;
 
+import chess.Attacks;
 import chess.ChessBoard;
-import chess.FileRank;
+import chess.Position;
 
 import java.util.Arrays;
 import java.util.List;
@@ -13,7 +14,6 @@ public class Rook extends ChessPiece {
 
     public static final List<String> INITIAL_POSITIONS = Arrays.asList("a", "h");
     private static final String SYMBOL = "R";
-    private static final List<String> VALID_MOVES = Arrays.asList(NORTH, EAST, SOUTH, WEST);
     public static final int MAX_STEPS = 8;
     private Boolean isMoved = false;
 
@@ -31,11 +31,16 @@ public class Rook extends ChessPiece {
     }
 
     @Override
-    public Boolean move(FileRank toPosition, Boolean modifyPosition) {
-        String toFileRank = toPosition.getFileRank().get(FileRank.FILE_KEY) +
-                toPosition.getFileRank().get(FileRank.RANK_KEY);
-        return validateMoveAndUpdatePosition(getValidMoves(VALID_MOVES, MAX_STEPS,
-                this.currentPosition, toFileRank), toFileRank, modifyPosition, toPosition);
+    public int getType() {
+        return Position.ROOK;
+    }
+
+    @Override
+    public boolean move(int to, boolean modifyPosition) {
+        Position position = this.chessBoard.getPosition();
+        long targets = Attacks.rookAttacks(this.square, position.occupied())
+                & ~position.pieces(this.color);
+        return validateMoveAndUpdatePosition(targets, to, modifyPosition);
     }
 
     public void setIsMoved(Boolean isMoved) {
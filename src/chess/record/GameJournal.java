@@ -0,0 +1,510 @@
+package chess.record;
+
+import chess.ChessBoard;
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the games in progress, so that they survive a restart of the process or are moved to
+ * another process by copying the file. A game is written as a binary snapshot of its position and state,
+ * followed by the moves played since the snapshot. The file starts with a header and holds
+ * entries of every game:
+ * <pre>
+ *     int     length of the type, the game id and the data
+ *     byte    type, SNAPSHOT, MOVE or END
+ *     long    game id
+ *     byte[]  data, SNAPSHOT_SIZE bytes for a SNAPSHOT, a short of Move.toShort for a MOVE, nothing otherwise
+ *     int     CRC32 of the type, the game id and the data
+ * </pre>
+ * A snapshot holds the state byte of its owner, the pieces as 64 nibbles of piece index + 1, the side to move,
+ * castling rights, en passant square and the move clocks. Multi-byte values are big-endian.
+ * <p>
+ * Entries are gathered in a buffer, which a background thread writes and forces to the disk every sync interval, so
+ * that writers do not wait for the disk and one fsync covers every entry of the interval. An entry is therefore durable
+ * after the next sync interval, or after a call to sync. The entries of a crash are cut at the first incomplete or
+ * corrupt one when the journal is opened again. An intact entry which does not apply to its game, such as a move of a
+ * game with no snapshot, is skipped and counted, so that it does not cut the later games. The journal keeps the last
+ * snapshot and the later moves of every game in memory, so restoring a game replays a few moves without reading the
+ * file, and compact rewrites the file with only those.
+ */
+public class GameJournal implements Closeable {
+    static final int MAGIC = 0x43484a4c;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    public static final byte SNAPSHOT = 1;
+    public static final byte MOVE = 2;
+    public static final byte END = 3;
+    public static final int SNAPSHOT_SIZE = 1 + 32 + 1 + 1 + 1 + 2 + 2;
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100L;
+    private static final int ENTRY_OVERHEAD = 4 + 1 + 8 + 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, GameLog> games = new HashMap<>();
+    private final ScheduledExecutorService syncer;
+    //whether entries have been written since the last fsync.
+    private boolean isDirty;
+    //intact entries skipped when the file was read because they did not apply to their game.
+    private int skippedEntries;
+
+    /**
+     * Last snapshot and later moves of a game.
+     */
+    private static class GameLog {
+        private final byte[] snapshot = new byte[SNAPSHOT_SIZE];
+        private short[] moves = new short[16];
+        private int plies;
+
+        private void addMove(short move) {
+            if (plies == moves.length) {
+                moves = Arrays.copyOf(moves, plies * 2);
+            }
+            moves[plies++] = move;
+        }
+    }
+
+    private GameJournal(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a journal with the default sync interval.
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static GameJournal open(Path path) throws IOException {
+        return open(path, DEFAULT_SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens a journal, reading the games of an existing file, or creates it, and starts its sync thread.
+     * @param path
+     * @param syncIntervalMillis interval between two writes and fsyncs of the buffered entries.
+     * @return
+     * @throws IOException
+     */
+    public static GameJournal open(Path path, long syncIntervalMillis) throws IOException {
+        GameJournal journal = new GameJournal(path);
+        journal.syncer.scheduleWithFixedDelay(journal::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        return journal;
+    }
+
+    /**
+     * Reads the games of the file and cuts it after its last valid entry.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            channel.truncate(0L);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, HEADER_SIZE - header.remaining());
+            }
+            channel.force(false);
+            channel.position(HEADER_SIZE);
+            return;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Journal too large, compact it: " + path);
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+            //read the whole file.
+        }
+        data.flip();
+        if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+            throw new IOException("Not a game journal: " + path);
+        }
+        int end = data.position();
+        while (data.remaining() >= ENTRY_OVERHEAD) {
+            int start = data.position();
+            int length = data.getInt();
+            if (length < 9 || length > 9 + SNAPSHOT_SIZE || data.remaining() < length + 4) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.array(), start + 4, length);
+            if ((int) crc.getValue() != data.getInt(start + 4 + length)) {
+                break;
+            }
+            byte type = data.get();
+            long gameId = data.getLong();
+            if (!apply(type, gameId, data.array(), data.position(), length - 9)) {
+                //the entry was written whole, so the entries after it are not lost with it.
+                skippedEntries++;
+            }
+            end = start + 4 + length + 4;
+            data.position(end);
+        }
+        //a crash may have left a partial entry, which is dropped with anything after it.
+        channel.truncate(end);
+        channel.position(end);
+    }
+
+    /**
+     * Applies an entry to the games in memory.
+     * @return whether the entry is valid.
+     */
+    private boolean apply(byte type, long gameId, byte[] data, int offset, int length) {
+        GameLog log = games.get(gameId);
+        switch (type) {
+            case SNAPSHOT:
+                if (length != SNAPSHOT_SIZE) {
+                    return false;
+                }
+                if (log == null) {
+                    log = new GameLog();
+                    games.put(gameId, log);
+                }
+                System.arraycopy(data, offset, log.snapshot, 0, SNAPSHOT_SIZE);
+                log.plies = 0;
+                return true;
+            case MOVE:
+                if (length != 2 || log == null) {
+                    return false;
+                }
+                log.addMove((short) ((data[offset] & 0xFF) << 8 | data[offset + 1] & 0xFF));
+                return true;
+            case END:
+                if (length != 0) {
+                    return false;
+                }
+                games.remove(gameId);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot of a game, which replaces its previous entries.
+     * @param gameId
+     * @param state state of the owner of the game, such as its flags.
+     * @param position
+     * @throws IOException
+     */
+    public void snapshot(long gameId, byte state, Position position) throws IOException {
+        byte[] snapshot = new byte[SNAPSHOT_SIZE];
+        snapshot[0] = state;
+        for (int square = 0; square < 64; square++) {
+            snapshot[1 + square / 2] |= (byte) ((position.pieceAt(square) + 1) << (square % 2 * 4));
+        }
+        snapshot[33] = (byte) position.getSideToMove();
+        snapshot[34] = (byte) position.getCastlingRights();
+        snapshot[35] = (byte) position.getEnPassantSquare();
+        snapshot[36] = (byte) (position.getHalfmoveClock() >>> 8);
+        snapshot[37] = (byte) position.getHalfmoveClock();
+        snapshot[38] = (byte) (position.getFullmoveNumber() >>> 8);
+        snapshot[39] = (byte) position.getFullmoveNumber();
+        append(SNAPSHOT, gameId, snapshot, SNAPSHOT_SIZE);
+    }
+
+    /**
+     * Writes a move played in a game.
+     * @param gameId
+     * @param move encoded move.
+     * @throws IOException
+     */
+    public void move(long gameId, int move) throws IOException {
+        short shortMove = Move.toShort(move);
+        append(MOVE, gameId, new byte[]{(byte) (shortMove >>> 8), (byte) shortMove}, 2);
+    }
+
+    /**
+     * Writes that a game is over, so that it is not restored.
+     * @param gameId
+     * @throws IOException
+     */
+    public void end(long gameId) throws IOException {
+        append(END, gameId, null, 0);
+    }
+
+    private void append(byte type, long gameId, byte[] data, int length) throws IOException {
+        lock.lock();
+        try {
+            if (buffer.remaining() < ENTRY_OVERHEAD + length) {
+                write();
+            }
+            //the games in memory are only updated once the entry is buffered, so they never run ahead of the file.
+            int start = buffer.position();
+            put(buffer, type, gameId, data, length);
+            if (!apply(type, gameId, data, 0, length)) {
+                buffer.position(start);
+                throw new IllegalStateException("Invalid journal entry of game " + gameId + ": " + type);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(ByteBuffer target, byte type, long gameId, byte[] data, int length) {
+        int start = target.position();
+        target.putInt(9 + length).put(type).putLong(gameId);
+        if (length > 0) {
+            target.put(data, 0, length);
+        }
+        crc.reset();
+        crc.update(target.duplicate().limit(target.position()).position(start + 4));
+        target.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes the buffered entries to the file, without forcing them to the disk.
+     */
+    private void write() throws IOException {
+        //set first, as a failed write may still have written part of the entries.
+        isDirty = true;
+        flush(channel);
+    }
+
+    /**
+     * Writes the buffered entries to a file. If the write fails, the entries not written yet are moved back to the
+     * start of the buffer, after which the next write goes on from where this one stopped.
+     */
+    private void flush(FileChannel target) throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Writes the buffered entries and forces them to the disk.
+     * @throws IOException
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            if (buffer.position() > 0) {
+                write();
+            }
+            if (isDirty) {
+                channel.force(false);
+                isDirty = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            //the entries not written stay buffered and are written by the next sync.
+        }
+    }
+
+    /**
+     * Returns the number of intact entries skipped when the file was opened because they did not apply to their
+     * game. They are dropped by compact.
+     * @return
+     */
+    public int getSkippedEntries() {
+        return skippedEntries;
+    }
+
+    /**
+     * Returns whether a game is in the journal, which is until its end is written.
+     * @param gameId
+     * @return
+     */
+    public boolean contains(long gameId) {
+        lock.lock();
+        try {
+            return games.containsKey(gameId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the games in the journal.
+     * @return
+     */
+    public long[] getGameIds() {
+        lock.lock();
+        try {
+            long[] ids = new long[games.size()];
+            int i = 0;
+            for (Long id : games.keySet()) {
+                ids[i++] = id;
+            }
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets up a chess board with the last snapshot of a game and replays the moves played since.
+     * @param gameId
+     * @param chessBoard
+     * @return state written with the snapshot, or -1 if the game is not in the journal.
+     */
+    public int restore(long gameId, ChessBoard chessBoard) {
+        byte[] snapshot;
+        short[] moves;
+        int plies;
+        lock.lock();
+        try {
+            GameLog log = games.get(gameId);
+            if (log == null) {
+                return -1;
+            }
+            snapshot = log.snapshot.clone();
+            moves = Arrays.copyOf(log.moves, log.plies);
+            plies = log.plies;
+        } finally {
+            lock.unlock();
+        }
+        Position position = new Position();
+        for (int square = 0; square < 64; square++) {
+            int piece = (snapshot[1 + square / 2] >>> (square % 2 * 4) & 0xF) - 1;
+            if (piece != Position.NO_PIECE) {
+                position.put(piece, square);
+            }
+        }
+        position.setSideToMove(snapshot[33]);
+        position.setCastlingRights(snapshot[34]);
+        position.setEnPassantSquare(snapshot[35]);
+        position.setHalfmoveClock((snapshot[36] & 0xFF) << 8 | snapshot[37] & 0xFF);
+        position.setFullmoveNumber((snapshot[38] & 0xFF) << 8 | snapshot[39] & 0xFF);
+        chessBoard.load(position);
+        int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+        for (int i = 0; i < plies; i++) {
+            int move = Move.fromShort(moves[i], legalMoves, chessBoard.generateLegalMoves(legalMoves));
+            if (move == Move.NONE) {
+                throw new IllegalStateException("Illegal move in the journal of game " + gameId);
+            }
+            chessBoard.makeMove(move);
+        }
+        return snapshot[0] & 0xFF;
+    }
+
+    /**
+     * Rewrites the file with only the last snapshot and later moves of the games in progress.
+     * @throws IOException
+     */
+    public void compact() throws IOException {
+        lock.lock();
+        try {
+            sync();
+            Path compacted = Paths.get(path + ".compact");
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                buffer.putInt(MAGIC).putInt(VERSION);
+                byte[] move = new byte[2];
+                for (Map.Entry<Long, GameLog> entry : games.entrySet()) {
+                    GameLog log = entry.getValue();
+                    for (int i = -1; i < log.plies; i++) {
+                        if (buffer.remaining() < ENTRY_OVERHEAD + SNAPSHOT_SIZE) {
+                            flush(out);
+                        }
+                        if (i < 0) {
+                            put(buffer, SNAPSHOT, entry.getKey(), log.snapshot, SNAPSHOT_SIZE);
+                        } else {
+                            move[0] = (byte) (log.moves[i] >>> 8);
+                            move[1] = (byte) log.moves[i];
+                            put(buffer, MOVE, entry.getKey(), move, 2);
+                        }
+                    }
+                }
+                flush(out);
+                out.force(false);
+            } catch (IOException e) {
+                buffer.clear();
+                throw e;
+            }
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            isDirty = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes and forces the buffered entries, and closes the file.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        lock.lock();
+        try {
+            sync();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usage: GameJournal journal [compact] to print the games in progress of a journal, and compact it.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        try (GameJournal journal = GameJournal.open(Paths.get(args[0]))) {
+            if (journal.getSkippedEntries() > 0) {
+                System.err.println(journal.getSkippedEntries() + " entries skipped");
+            }
+            ChessBoard chessBoard = new ChessBoard();
+            for (long gameId : journal.getGameIds()) {
+                journal.restore(gameId, chessBoard);
+                System.out.println(gameId + " " + Fen.format(chessBoard.getPosition()));
+            }
+            if (args.length > 1 && "compact".equals(args[1])) {
+                journal.compact();
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package chess.record;
+
+import chess.ChessBoard;
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.pgn.PgnVisitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Reads the game records written by GameRecordWriter from memory-mapped data and index files.
+ * A game is found by its number through the index and replayed on a chess board: each stored move is matched
+ * against the legal moves of the position, which restores the flags of the move and rejects a corrupt record.
+ * A reader keeps no state between games other than its move buffer, so it is used by one thread at a time.
+ * A data file is mapped at once and can not be larger than 2 GB.
+ */
+public final class GameRecordReader implements Closeable {
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer index;
+    private final long games;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Opens a data file and its index file.
+     * @param path data file, the index file is indexPath(path).
+     * @throws IOException
+     */
+    public GameRecordReader(Path path) throws IOException {
+        this.dataChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.indexChannel = FileChannel.open(indexPath(path), StandardOpenOption.READ);
+        if (dataChannel.size() > Integer.MAX_VALUE) {
+            close();
+            throw new IOException("Game record file larger than 2 GB: " + path);
+        }
+        this.data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0L, dataChannel.size());
+        this.index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0L, indexChannel.size());
+        if (data.limit() < GameRecordWriter.HEADER_SIZE || index.limit() < GameRecordWriter.HEADER_SIZE
+                || data.getInt(0) != GameRecordWriter.DATA_MAGIC || index.getInt(0) != GameRecordWriter.INDEX_MAGIC
+                || data.getInt(4) != GameRecordWriter.VERSION || index.getInt(4) != GameRecordWriter.VERSION) {
+            close();
+            throw new IOException("Not a game record file: " + path);
+        }
+        this.games = (index.limit() - GameRecordWriter.HEADER_SIZE) / Long.BYTES;
+    }
+
+    /**
+     * Returns the path of the index file of a data file.
+     * @param path data file.
+     * @return
+     */
+    public static Path indexPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".idx");
+    }
+
+    /**
+     * Returns the number of games.
+     * @return
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the result of a game.
+     * @param game number of the game, starting at 0.
+     * @return index of the result in GameRecordWriter.RESULTS.
+     */
+    public int getResult(long game) {
+        return data.get(offset(game));
+    }
+
+    /**
+     * Returns the number of plies of a game.
+     * @param game number of the game, starting at 0.
+     * @return
+     */
+    public int getPlies(long game) {
+        int offset = offset(game);
+        if ((data.get(offset + 1) & GameRecordWriter.HAS_FEN) != 0) {
+            offset += 2 + Short.toUnsignedInt(data.getShort(offset + 2));
+        }
+        return Short.toUnsignedInt(data.getShort(offset + 2));
+    }
+
+    /**
+     * Replays a game on a chess board. The visitor is called as by a PgnReader, with no tags other than the FEN
+     * string of a game which does not start at the starting position.
+     * @param game number of the game, starting at 0.
+     * @param chessBoard chess board, which is left at the final position of the game.
+     * @param visitor
+     * @return whether the game was replayed, otherwise the record is corrupt and visitor.error has been called.
+     */
+    public boolean replay(long game, ChessBoard chessBoard, PgnVisitor visitor) {
+        int offset = offset(game);
+        if (!fits(offset, 4)) {
+            visitor.error(game, offset, "Game record out of the data file");
+            return false;
+        }
+        int result = data.get(offset);
+        Map<String, String> tags = Collections.emptyMap();
+        offset += 2;
+        String fen = Fen.STARTING_POSITION;
+        if ((data.get(offset - 1) & GameRecordWriter.HAS_FEN) != 0) {
+            byte[] bytes = new byte[Short.toUnsignedInt(data.getShort(offset))];
+            offset += 2;
+            //the plies follow the FEN string.
+            if (!fits(offset, bytes.length + 2)) {
+                visitor.error(game, offset, "Truncated FEN string in game record");
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = data.get(offset + i);
+            }
+            offset += bytes.length;
+            fen = new String(bytes, StandardCharsets.UTF_8);
+            tags = Collections.singletonMap("FEN", fen);
+        }
+        try {
+            chessBoard.load(fen);
+        } catch (IllegalArgumentException e) {
+            visitor.error(game, offset, e.getMessage());
+            return false;
+        }
+        visitor.startGame(game, tags, chessBoard);
+        int plies = Short.toUnsignedInt(data.getShort(offset));
+        offset += 2;
+        if (!fits(offset, plies * 2)) {
+            visitor.error(game, offset, "Truncated moves in game record: " + plies + " plies");
+            return false;
+        }
+        for (int ply = 0; ply < plies; ply++, offset += 2) {
+            short stored = data.getShort(offset);
+            int move = Move.fromShort(stored, moves, chessBoard.generateLegalMoves(moves));
+            if (move == Move.NONE) {
+                visitor.error(game, offset, "Illegal move in game record: " + Move.toString(stored));
+                return false;
+            }
+            visitor.move(chessBoard, move);
+            chessBoard.makeMove(move);
+        }
+        if (result < 0 || result >= GameRecordWriter.RESULTS.length) {
+            visitor.error(game, offset, "Invalid result in game record: " + result);
+            return false;
+        }
+        visitor.endGame(GameRecordWriter.RESULTS[result]);
+        return true;
+    }
+
+    /**
+     * Returns if a number of bytes from an offset are within the data file.
+     */
+    private boolean fits(int offset, int length) {
+        return offset >= GameRecordWriter.HEADER_SIZE && offset <= data.limit() - length;
+    }
+
+    /**
+     * Returns the offset of a game record in the data file.
+     */
+    private int offset(long game) {
+        if (game < 0 || game >= games) {
+            throw new IndexOutOfBoundsException("No game " + game + " in " + games + " games");
+        }
+        return (int) index.getLong(GameRecordWriter.HEADER_SIZE + (int) (game * Long.BYTES));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            dataChannel.close();
+        } finally {
+            indexChannel.close();
+        }
+    }
+
+    /**
+     * Usage: GameRecordReader records [game] to replay every game and report the games per second, or to print
+     * the moves of one game.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        ChessBoard chessBoard = new ChessBoard();
+        try (GameRecordReader reader = new GameRecordReader(Paths.get(args[0]))) {
+            if (args.length > 1) {
+                StringBuilder line = new StringBuilder();
+                reader.replay(Long.parseLong(args[1]), chessBoard, new PgnVisitor() {
+                    @Override
+                    public void move(ChessBoard board, int move) {
+                        line.append(Move.toString(move)).append(' ');
+                    }
+
+                    @Override
+                    public void endGame(String result) {
+                        System.out.println(line.append(result));
+                    }
+                });
+                return;
+            }
+            long[] plies = new long[1];
+            PgnVisitor counter = (board, move) -> plies[0]++;
+            long start = System.nanoTime();
+            long replayed = 0L;
+            for (long game = 0; game < reader.getGames(); game++) {
+                if (reader.replay(game, chessBoard, counter)) {
+                    replayed++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games, %d moves replayed in %.2f s, %.0f games/s%n",
+                    replayed, plies[0], seconds, replayed / seconds);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package chess.record;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnVisitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes games in the compact binary format read by GameRecordReader.
+ * The data file starts with a header and holds one record per game:
+ * <pre>
+ *     byte    result, index in GameRecordWriter.RESULTS
+ *     byte    flags, HAS_FEN if the game does not start at the starting position
+ *     short   length of the FEN string and its UTF-8 bytes, if HAS_FEN
+ *     short   number of plies
+ *     short[] moves, the from square, to square and promotion bits of the encoded moves, see Move.toShort
+ * </pre>
+ * The index file starts with a header and holds the offset of each record in the data file as a long, so that a
+ * game is found by its number without reading the games before it. Multi-byte values are big-endian.
+ * The writer is a PgnVisitor, so a PGN file is converted by reading it into a writer.
+ */
+public class GameRecordWriter implements PgnVisitor, Closeable {
+    static final int DATA_MAGIC = 0x43484744;
+    static final int INDEX_MAGIC = 0x43484749;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int HAS_FEN = 1;
+    public static final String[] RESULTS = {"1-0", "1/2-1/2", "0-1", "*"};
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long dataOffset;
+    private long games;
+
+    //moves of the current game.
+    private short[] moves = new short[256];
+    private int plies;
+    private byte[] fen;
+
+    /**
+     * Creates or replaces the data file and its index file.
+     * @param path data file, the index file is GameRecordReader.indexPath(path).
+     * @throws IOException
+     */
+    public GameRecordWriter(Path path) throws IOException {
+        this.data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.index = FileChannel.open(GameRecordReader.indexPath(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        dataBuffer.putInt(DATA_MAGIC).putInt(VERSION);
+        indexBuffer.putInt(INDEX_MAGIC).putInt(VERSION);
+        dataOffset = HEADER_SIZE;
+    }
+
+    /**
+     * Writes a game.
+     * @param fen FEN string of the starting position, or null for the standard starting position.
+     * @param gameMoves encoded moves.
+     * @param count number of moves.
+     * @param result index of the result in RESULTS.
+     * @throws IOException
+     */
+    public void write(String fen, int[] gameMoves, int count, int result) throws IOException {
+        startGame(fen);
+        for (int i = 0; i < count; i++) {
+            addMove(gameMoves[i]);
+        }
+        endGame(result);
+    }
+
+    @Override
+    public void startGame(long gameNumber, Map<String, String> tags, ChessBoard chessBoard) {
+        startGame(tags.containsKey("FEN") ? chessBoard.toFen() : null);
+    }
+
+    @Override
+    public void move(ChessBoard chessBoard, int move) {
+        addMove(move);
+    }
+
+    @Override
+    public void endGame(String result) {
+        int resultIndex = 0;
+        while (resultIndex < RESULTS.length - 1 && !RESULTS[resultIndex].equals(result)) {
+            resultIndex++;
+        }
+        try {
+            endGame(resultIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void startGame(String startFen) {
+        plies = 0;
+        fen = startFen == null ? null : startFen.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void addMove(int move) {
+        if (plies == moves.length) {
+            moves = Arrays.copyOf(moves, plies * 2);
+        }
+        moves[plies++] = Move.toShort(move);
+    }
+
+    private void endGame(int result) throws IOException {
+        if (plies > 0xFFFF) {
+            throw new IllegalArgumentException("Game too long: " + plies + " plies");
+        }
+        ensureRemaining(index, indexBuffer, Long.BYTES);
+        indexBuffer.putLong(dataOffset);
+        int size = 2 + (fen != null ? 2 + fen.length : 0) + 2 + 2 * plies;
+        ensureRemaining(data, dataBuffer, size - 2 * plies);
+        dataBuffer.put((byte) result);
+        dataBuffer.put((byte) (fen != null ? HAS_FEN : 0));
+        if (fen != null) {
+            dataBuffer.putShort((short) fen.length).put(fen);
+        }
+        dataBuffer.putShort((short) plies);
+        for (int i = 0; i < plies; i++) {
+            ensureRemaining(data, dataBuffer, Short.BYTES);
+            dataBuffer.putShort(moves[i]);
+        }
+        dataOffset += size;
+        games++;
+    }
+
+    /**
+     * Writes out a buffer if it has less than the specified number of bytes left.
+     */
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the number of games written.
+     * @return
+     */
+    public long getGames() {
+        return games;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush(data, dataBuffer);
+            flush(index, indexBuffer);
+        } finally {
+            data.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Usage: GameRecordWriter file.pgn records to convert the games of a PGN file to game records.
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        Path pgn = Paths.get(args[0]);
+        Path records = Paths.get(args[1]);
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(pgn); GameRecordWriter writer = new GameRecordWriter(records)) {
+            reader.read(writer);
+            System.out.printf("%d games written, %d skipped in %.2f s%n", writer.getGames(), reader.getErrors(),
+                    (System.nanoTime() - start) / 1e9);
+        }
+        long pgnBytes = Files.size(pgn);
+        long recordBytes = Files.size(records) + Files.size(GameRecordReader.indexPath(records));
+        System.out.printf("PGN %d bytes, records %d bytes with the index, %.1f times smaller%n",
+                pgnBytes, recordBytes, (double) pgnBytes / recordBytes);
+    }
+}
@@ -0,0 +1,79 @@
+package chess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Line-based connection of a player to the game server.
+ * Lines are read only by the thread of the connection, but lines are sent by the thread of the connection and by
+ * the thread of the opponent, so sending is guarded by a lock. A ReentrantLock is used rather than synchronized,
+ * which would pin a virtual thread blocked on the socket to its carrier thread.
+ */
+public class Connection implements Closeable {
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final Writer writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile GameSession session;
+
+    /**
+     * @param socket connected socket.
+     * @throws IOException
+     */
+    public Connection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the next line sent by the player, or null once the player has disconnected.
+     * @return
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        return reader.readLine();
+    }
+
+    /**
+     * Sends a line to the player. A player who has disconnected is ignored, its thread finds out on its next read.
+     * @param line
+     */
+    public void send(String line) {
+        writeLock.lock();
+        try {
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            //the connection is closed by its own thread.
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the game session of the player, or null.
+     * @return
+     */
+    public GameSession getSession() {
+        return session;
+    }
+
+    public void setSession(GameSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,225 @@
+package chess.server;
+
+import chess.ChessBoard;
+import chess.engine.SearchLimits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server hosting many games at once for players connected through local sockets, with one virtual thread per
+ * connection. A connection waiting for its player's next line is a virtual thread parked on the socket, which
+ * holds no platform thread, so the number of games is bounded by memory rather than by threads.
+ * The protocol is line-based, a player sends commands and the server replies and sends events:
+ * <pre>
+ *     new                      creates a game and waits for an opponent       wait id
+ *     new engine [white|black] starts a game against the engine               start id color
+ *     join [id]                joins a waiting game, by default the oldest    start id color, to both players
+ *     move from to [promotion] plays a move such as "move e7 e8 Q"            ok, and "move ..." to the opponent
+ *     resign                   resigns the game                               end result reason, to both players
+ *     fen                      returns the position                          fen ...
+ *     stats                    returns the number of games and connections    stats games waiting connections
+ *     quit                     closes the connection
+ * </pre>
+ * A rejected command is answered with "error message". A game ends with "end result reason" to both players,
+ * such as "end 1-0 checkmate", after which the players can start another game.
+ */
+public class GameServer implements Closeable {
+    public static final int DEFAULT_PORT = 5555;
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    private static final int BACKLOG = 4096;
+
+    private final ServerSocket serverSocket;
+    private final SessionManager sessionManager;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger connections = new AtomicInteger();
+    private int idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    /**
+     * Binds the server to a port of the loopback address.
+     * @param port port, or 0 for any free port.
+     * @param sessionManager
+     * @throws IOException
+     */
+    public GameServer(int port, SessionManager sessionManager) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * Sets the time after which a connection which has sent nothing is closed, or 0 to never close it.
+     * @param idleTimeoutMillis
+     */
+    public void setIdleTimeoutMillis(int idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Accepts connections until the server is closed, each on a virtual thread of its own.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                //the server socket has been closed.
+                break;
+            }
+            executor.submit(() -> handle(socket));
+        }
+    }
+
+    /**
+     * Reads and runs the commands of a connection until the player quits or disconnects.
+     */
+    private void handle(Socket socket) {
+        connections.incrementAndGet();
+        Connection connection = null;
+        try {
+            socket.setSoTimeout(idleTimeoutMillis);
+            socket.setTcpNoDelay(true);
+            connection = new Connection(socket);
+            String line;
+            while ((line = connection.readLine()) != null) {
+                boolean quit;
+                try {
+                    quit = !execute(connection, line.trim().split("\\s+"));
+                } catch (RuntimeException e) {
+                    //a failed command does not end the connection or its game.
+                    connection.send("error " + e);
+                    quit = false;
+                }
+                if (quit) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            if (connection != null) {
+                connection.send("error Idle timeout");
+            }
+        } catch (IOException e) {
+            //the player has disconnected.
+        } finally {
+            if (connection != null && connection.getSession() != null) {
+                connection.getSession().leave(connection);
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already closed.
+            }
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs a command of a player.
+     * @return false if the player quits.
+     */
+    private boolean execute(Connection connection, String[] command) {
+        GameSession session = connection.getSession();
+        switch (command[0]) {
+            case "new":
+                if (session != null) {
+                    connection.send("error Already in a game");
+                } else if (command.length > 1 && "engine".equals(command[1])) {
+                    String kind = command.length > 2 && GameSession.BLACK.equals(command[2])
+                            ? ChessBoard.BLACK_KIND : ChessBoard.WHITE_KIND;
+                    sessionManager.createEngineGame(connection, kind);
+                } else {
+                    connection.send("wait " + sessionManager.create(connection).getId());
+                }
+                break;
+            case "join":
+                if (session != null) {
+                    connection.send("error Already in a game");
+                } else if (command.length > 1 && !command[1].matches("\\d{1,18}")) {
+                    connection.send("error Invalid game id");
+                } else if ((command.length > 1 ? sessionManager.join(connection, Long.parseLong(command[1]))
+                        : sessionManager.joinAny(connection)) == null) {
+                    connection.send("error No game to join");
+                }
+                break;
+            case "move":
+                if (session == null) {
+                    connection.send("error Not in a game");
+                } else if (command.length < 3 || command.length > 4) {
+                    connection.send("error Illegal move");
+                } else {
+                    session.move(connection, command[1], command[2], command.length == 4 ? command[3] : null);
+                }
+                break;
+            case "resign":
+                if (session == null) {
+                    connection.send("error Not in a game");
+                } else {
+                    session.resign(connection);
+                }
+                break;
+            case "fen":
+                connection.send(session == null ? "error Not in a game" : "fen " + session.getFen());
+                break;
+            case "stats":
+                connection.send("stats " + sessionManager.getSessionCount() + " " + sessionManager.getWaitingCount()
+                        + " " + connections.get());
+                break;
+            case "quit":
+                return false;
+            default:
+                connection.send("error Unknown command");
+        }
+        return true;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of open connections.
+     * @return
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and stops the engine searches.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+        sessionManager.shutdown();
+    }
+
+    /**
+     * Usage: GameServer [port [engines [milliseconds per engine move]]]
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        //fewer search threads than cores, so that searches never hold every core from the connections.
+        int engines = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 100L;
+        try (GameServer server = new GameServer(port, new SessionManager(engines, SearchLimits.time(millis)))) {
+            System.out.println("Game server listening on port " + server.getPort());
+            server.serve();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package chess.server;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One game hosted by the game server, between two connected players or a player and the engine.
+ * Moves are validated by ChessBoard.move and ChessBoard.promotePawn as in ChessGame, and the players are told of
+ * every move and of the end of the game. The state of a session is guarded by a lock, since each player sends
+ * its commands from the thread of its own connection.
+ */
+public class GameSession {
+    public static final String WHITE = "white";
+    public static final String BLACK = "black";
+
+    private final long id;
+    private final SessionManager sessionManager;
+    private final ChessBoard chessBoard = new ChessBoard();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final ReentrantLock lock = new ReentrantLock();
+    //kind of the side played by the engine, or null.
+    private final String engineTurn;
+    private Connection white;
+    private Connection black;
+    private String turn = ChessBoard.WHITE_KIND;
+    //result and reason, such as "1-0 checkmate", once the game is over.
+    private String result;
+
+    /**
+     * @param id
+     * @param sessionManager
+     * @param engineTurn kind of the side played by the engine, or null for a game between two players.
+     */
+    GameSession(long id, SessionManager sessionManager, String engineTurn) {
+        this.id = id;
+        this.sessionManager = sessionManager;
+        this.engineTurn = engineTurn;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Seats a player on a side.
+     * @param player
+     * @param kind kind of the side.
+     * @return whether the side was free.
+     */
+    boolean seat(Connection player, String kind) {
+        lock.lock();
+        try {
+            boolean isWhite = ChessBoard.WHITE_KIND.equals(kind);
+            if (result != null || kind.equals(engineTurn) || (isWhite ? white : black) != null) {
+                return false;
+            }
+            if (isWhite) {
+                white = player;
+            } else {
+                black = player;
+            }
+            player.setSession(this);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether both sides are played.
+     * @return
+     */
+    public boolean isStarted() {
+        lock.lock();
+        try {
+            return engineTurn != null ? white != null || black != null : white != null && black != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells the players that the game starts, and lets the engine move if it plays white.
+     */
+    void start() {
+        lock.lock();
+        try {
+            send(white, "start " + id + " " + WHITE);
+            send(black, "start " + id + " " + BLACK);
+            if (ChessBoard.WHITE_KIND.equals(engineTurn)) {
+                playEngineMove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Plays a move of a player and replies "ok", or an error if the move is not valid.
+     * The opponent is sent the move, and both players the result if the game is over.
+     * @param player
+     * @param from origin filerank such as "e2".
+     * @param to destination filerank.
+     * @param promotion promotion of a pawn such as "Q", or null.
+     */
+    public void move(Connection player, String from, String to, String promotion) {
+        lock.lock();
+        try {
+            if (result != null) {
+                player.send("error Game over");
+            } else if (!isStarted()) {
+                player.send("error Waiting for an opponent");
+            } else if (player != (ChessBoard.WHITE_KIND.equals(turn) ? white : black)) {
+                player.send("error Not your turn");
+            } else if (!isFileRank(from) || !isFileRank(to) || !play(from, to, promotion)) {
+                player.send("error Illegal move");
+            } else {
+                player.send("ok");
+                send(opponent(player), moveLine(from, to, promotion));
+                if (result == null && turn.equals(engineTurn)) {
+                    playEngineMove();
+                }
+                if (result != null) {
+                    finish();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Plays a move with the validation of ChessGame and sets the result if the opponent has no legal move.
+     * @return whether the move was valid.
+     */
+    private boolean play(String from, String to, String promotion) {
+        Boolean isValid = promotion == null ? chessBoard.move(from, to, turn)
+                : chessBoard.promotePawn(from, to, turn, promotion);
+        if (!isValid) {
+            return false;
+        }
+        String mover = turn;
+        turn = ChessBoard.WHITE_KIND.equals(turn) ? ChessBoard.BLACK_KIND : ChessBoard.WHITE_KIND;
+        if (chessBoard.generateLegalMoves(moves) == 0) {
+            Position position = chessBoard.getPosition();
+            if (position.isInCheck(position.getSideToMove())) {
+                result = (ChessBoard.WHITE_KIND.equals(mover) ? "1-0" : "0-1") + " checkmate";
+            } else {
+                result = "1/2-1/2 stalemate";
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plays the move of the engine, searched by an engine borrowed from the session manager.
+     */
+    private void playEngineMove() {
+        int move = sessionManager.searchEngineMove(chessBoard);
+        String from = Position.squareName(Move.from(move));
+        String to = Position.squareName(Move.to(move));
+        String promotion = Move.isPromotion(move) ? String.valueOf("PNBRQK".charAt(Move.promotion(move))) : null;
+        play(from, to, promotion);
+        send(ChessBoard.WHITE_KIND.equals(engineTurn) ? black : white, moveLine(from, to, promotion));
+    }
+
+    /**
+     * Resigns the game of a player.
+     * @param player
+     */
+    public void resign(Connection player) {
+        lock.lock();
+        try {
+            if (result != null) {
+                player.send("error Game over");
+            } else if (!isStarted()) {
+                player.send("error Waiting for an opponent");
+            } else {
+                result = (player == white ? "0-1" : "1-0") + " resignation";
+                finish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a player out of the session. The opponent wins a started game, and the session is closed.
+     * @param player
+     */
+    void leave(Connection player) {
+        lock.lock();
+        try {
+            if (result == null && isStarted()) {
+                result = (player == white ? "0-1" : "1-0") + " abandoned";
+            }
+            if (player == white) {
+                white = null;
+            } else if (player == black) {
+                black = null;
+            }
+            player.setSession(null);
+            if (result != null) {
+                finish();
+            } else {
+                result = "* abandoned";
+                sessionManager.remove(this);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the FEN string of the position.
+     * @return
+     */
+    public String getFen() {
+        lock.lock();
+        try {
+            return chessBoard.toFen();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the result to the players, who are then free to start another game, and closes the session.
+     */
+    private void finish() {
+        send(white, "end " + result);
+        send(black, "end " + result);
+        if (white != null) {
+            white.setSession(null);
+        }
+        if (black != null) {
+            black.setSession(null);
+        }
+        sessionManager.remove(this);
+    }
+
+    private Connection opponent(Connection player) {
+        return player == white ? black : white;
+    }
+
+    private static String moveLine(String from, String to, String promotion) {
+        return "move " + from + " " + to + (promotion != null ? " " + promotion : "");
+    }
+
+    private static boolean isFileRank(String fileRank) {
+        return fileRank.length() == 2 && fileRank.charAt(0) >= 'a' && fileRank.charAt(0) <= 'h'
+                && fileRank.charAt(1) >= '1' && fileRank.charAt(1) <= '8';
+    }
+
+    private static void send(Connection player, String line) {
+        if (player != null) {
+            player.send(line);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package chess.server;
+
+import chess.ChessBoard;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Game sessions of the game server, by id, and the sessions waiting for a second player.
+ * Games against the engine borrow one of a small pool of engines for each engine move: an engine and its
+ * transposition table are far larger than a session, so they are shared rather than created per game, and the
+ * size of the pool also bounds the number of searches running at once.
+ * The searches run on platform threads of their own, one per engine, while the virtual thread of the connection
+ * waits for the move unmounted from its carrier. A search is CPU-bound for its whole time limit, so on the
+ * virtual thread it would hold a carrier thread, and with as many searches as cores the socket I/O of every
+ * other session would stall. The number of engines should therefore be lower than the number of cores.
+ */
+public class SessionManager {
+    public static final int ENGINE_MEGABYTES = 16;
+
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    //sorted by id, so that the first one has waited the longest.
+    private final ConcurrentSkipListMap<Long, GameSession> waiting = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong(1L);
+    private final BlockingQueue<Engine> engines;
+    private final ExecutorService searchExecutor;
+    private final SearchLimits engineLimits;
+
+    /**
+     * @param engineCount number of engines shared by the games against the engine, and of search threads.
+     * @param engineLimits limits of the search of each engine move.
+     */
+    public SessionManager(int engineCount, SearchLimits engineLimits) {
+        if (engineCount < 1) {
+            throw new IllegalArgumentException("Invalid number of engines: " + engineCount);
+        }
+        this.engines = new ArrayBlockingQueue<>(engineCount);
+        for (int i = 0; i < engineCount; i++) {
+            engines.add(new Engine(new TranspositionTable(ENGINE_MEGABYTES)));
+        }
+        this.searchExecutor = Executors.newFixedThreadPool(engineCount,
+                Thread.ofPlatform().name("engine-search-", 0).daemon().factory());
+        this.engineLimits = engineLimits;
+    }
+
+    /**
+     * Creates a game between two players and seats a player on the white side.
+     * @param player
+     * @return
+     */
+    public GameSession create(Connection player) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), this, null);
+        session.seat(player, ChessBoard.WHITE_KIND);
+        sessions.put(session.getId(), session);
+        waiting.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Creates and starts a game against the engine.
+     * @param player
+     * @param kind kind of the side of the player.
+     * @return
+     */
+    public GameSession createEngineGame(Connection player, String kind) {
+        String engineTurn = ChessBoard.WHITE_KIND.equals(kind) ? ChessBoard.BLACK_KIND : ChessBoard.WHITE_KIND;
+        GameSession session = new GameSession(nextId.getAndIncrement(), this, engineTurn);
+        session.seat(player, kind);
+        sessions.put(session.getId(), session);
+        session.start();
+        return session;
+    }
+
+    /**
+     * Seats a player on the black side of a waiting game and starts it.
+     * @param player
+     * @param id id of the game.
+     * @return the game, or null if there is no such game waiting for a player.
+     */
+    public GameSession join(Connection player, long id) {
+        GameSession session = waiting.remove(id);
+        if (session == null || !session.seat(player, ChessBoard.BLACK_KIND)) {
+            return null;
+        }
+        session.start();
+        return session;
+    }
+
+    /**
+     * Seats a player on the black side of the game waiting the longest and starts it.
+     * @param player
+     * @return the game, or null if no game is waiting for a player.
+     */
+    public GameSession joinAny(Connection player) {
+        Map.Entry<Long, GameSession> entry;
+        while ((entry = waiting.pollFirstEntry()) != null) {
+            GameSession session = entry.getValue();
+            if (session.seat(player, ChessBoard.BLACK_KIND)) {
+                session.start();
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches the move of the engine with a pooled engine on a search thread, waiting for a search thread if all
+     * of them are busy. The chess board must not be modified until the move is returned.
+     * @param chessBoard
+     * @return encoded move.
+     */
+    int searchEngineMove(ChessBoard chessBoard) {
+        Future<Integer> search = searchExecutor.submit(() -> {
+            //there are as many engines as search threads, so one is always free.
+            Engine engine = engines.take();
+            try {
+                return engine.bestMove(chessBoard, engineLimits);
+            } finally {
+                engines.add(engine);
+            }
+        });
+        try {
+            return search.get();
+        } catch (InterruptedException e) {
+            search.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the engine", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Engine search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the search threads, the searches in progress are interrupted.
+     */
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+
+    void remove(GameSession session) {
+        sessions.remove(session.getId());
+        waiting.remove(session.getId());
+    }
+
+    /**
+     * Returns the number of games in progress or waiting for a player.
+     * @return
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of games waiting for a player.
+     * @return
+     */
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+}
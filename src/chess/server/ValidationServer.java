@@ -0,0 +1,419 @@
+package chess.server;
+
+import chess.ChessBoard;
+import chess.Position;
+import chess.piece.Pawn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking service validating moves for the front-end tier, built on NIO selectors.
+ * A request is a line "from to [promotion] fen" such as "e7 e8 Q 4k3/4P3/8/8/8/8/8/4K3 w - - 0 1", and is
+ * answered by a line "ok" if the move is accepted by ChessBoard.move, or ChessBoard.promotePawn when a promotion
+ * is given, for the side to move of the FEN string, "illegal" if it is rejected, or "error message" if the
+ * request is malformed. A client can send many requests without waiting, the replies come in the same order.
+ * <p>
+ * Each event loop owns a selector and a ChessBoard, and its connections are served by its thread alone, so no
+ * request is handed to another thread. On every tick the loop reads all the ready connections, validates the
+ * complete lines read as one batch on its chess board, then writes the replies of every connection with one
+ * gathering write. The chess board is loaded only when the FEN string of a request differs from the previous
+ * one, and an accepted move is taken back, so bursts of checks on one position cost one load.
+ */
+public class ValidationServer implements Closeable {
+    public static final int DEFAULT_PORT = 5556;
+    public static final String OK = "ok";
+    public static final String ILLEGAL = "illegal";
+    //longer than any request with a valid FEN string.
+    private static final int MAX_LINE = 256;
+    private static final int INPUT_SIZE = 16 * 1024;
+    private static final ByteBuffer OK_REPLY = reply(OK);
+    private static final ByteBuffer ILLEGAL_REPLY = reply(ILLEGAL);
+
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean closed;
+    private int nextLoop;
+
+    /**
+     * Binds the service to a port of the loopback address.
+     * @param port port, or 0 for any free port.
+     * @param loopCount number of event loops, each with its own thread and chess board.
+     * @throws IOException
+     */
+    public ValidationServer(int port, int loopCount) throws IOException {
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("Invalid number of event loops: " + loopCount);
+        }
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        serverChannel.configureBlocking(false);
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop();
+        }
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Runs the event loops until the service is closed, the first one on the calling thread, which also accepts
+     * the connections and hands them to the loops in turn.
+     */
+    public void serve() {
+        for (int i = 1; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "validation-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        loops[0].run();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of requests answered.
+     * @return
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of batches validated, a batch being the requests read in one tick of an event loop.
+     * @return
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Stops the event loops, which close their connections.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverChannel.close();
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.accepted.add(channel);
+            if (loop != loops[0]) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private static ByteBuffer reply(String line) {
+        return ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Connection of a client, with the bytes read but not yet validated and the replies not yet written.
+     */
+    private static class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(INPUT_SIZE);
+        private ByteBuffer[] replies = new ByteBuffer[64];
+        private int firstReply;
+        private int replyCount;
+        private SelectionKey key;
+        private boolean inBatch;
+        //the client has shut its output down, it is closed once its replies are written.
+        private boolean isEndOfInput;
+
+        private Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void addReply(ByteBuffer reply) {
+            if (replyCount == replies.length) {
+                if (firstReply > 0) {
+                    System.arraycopy(replies, firstReply, replies, 0, replyCount - firstReply);
+                    Arrays.fill(replies, replyCount - firstReply, replyCount, null);
+                    replyCount -= firstReply;
+                    firstReply = 0;
+                } else {
+                    replies = Arrays.copyOf(replies, replies.length * 2);
+                }
+            }
+            replies[replyCount++] = reply;
+        }
+
+        /**
+         * Writes as many replies as the socket takes with one gathering write.
+         * @return whether every reply has been written.
+         */
+        private boolean flush() throws IOException {
+            if (firstReply < replyCount) {
+                channel.write(replies, firstReply, replyCount - firstReply);
+                while (firstReply < replyCount && !replies[firstReply].hasRemaining()) {
+                    replies[firstReply++] = null;
+                }
+            }
+            if (firstReply < replyCount) {
+                return false;
+            }
+            firstReply = 0;
+            replyCount = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Selector loop serving its connections on one thread with one chess board.
+     */
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final ChessBoard chessBoard = new ChessBoard();
+        //FEN string the chess board is loaded with, or null if it has to be loaded again.
+        private String loadedFen;
+        private Client[] batch = new Client[64];
+        private int batchSize;
+
+        private EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerAccepted();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            registerAccepted();
+                        } else {
+                            Client client = (Client) key.attachment();
+                            if (key.isReadable()) {
+                                read(client);
+                            } else if (key.isWritable()) {
+                                addToBatch(client);
+                            }
+                        }
+                    }
+                    runBatch();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Event loop failed", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    //nothing left to release.
+                }
+            }
+        }
+
+        private void registerAccepted() throws IOException {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                Client client = new Client(channel);
+                client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            }
+        }
+
+        private void read(Client client) {
+            try {
+                if (client.channel.read(client.input) < 0) {
+                    client.isEndOfInput = true;
+                }
+                addToBatch(client);
+            } catch (IOException e) {
+                //the client has disconnected.
+                closeQuietly(client.key);
+            }
+        }
+
+        private void addToBatch(Client client) {
+            if (client.inBatch) {
+                return;
+            }
+            if (batchSize == batch.length) {
+                batch = Arrays.copyOf(batch, batchSize * 2);
+            }
+            client.inBatch = true;
+            batch[batchSize++] = client;
+        }
+
+        /**
+         * Validates the complete lines read from the clients of the batch, then writes their replies.
+         */
+        private void runBatch() {
+            int batchRequests = 0;
+            for (int i = 0; i < batchSize; i++) {
+                batchRequests += validateLines(batch[i]);
+            }
+            for (int i = 0; i < batchSize; i++) {
+                Client client = batch[i];
+                batch[i] = null;
+                client.inBatch = false;
+                if (!client.key.isValid()) {
+                    continue;
+                }
+                try {
+                    if (!client.flush()) {
+                        //stop reading until the client reads its replies.
+                        client.key.interestOps(SelectionKey.OP_WRITE);
+                    } else if (client.isEndOfInput) {
+                        closeQuietly(client.key);
+                    } else {
+                        client.key.interestOps(SelectionKey.OP_READ);
+                    }
+                } catch (IOException e) {
+                    closeQuietly(client.key);
+                }
+            }
+            if (batchSize > 0) {
+                batches.incrementAndGet();
+                requests.addAndGet(batchRequests);
+            }
+            batchSize = 0;
+        }
+
+        /**
+         * Validates the complete lines of the input of a client and adds their replies.
+         * @return number of lines validated.
+         */
+        private int validateLines(Client client) {
+            ByteBuffer input = client.input;
+            byte[] bytes = input.array();
+            int start = 0;
+            int count = 0;
+            for (int i = 0; i < input.position(); i++) {
+                if (bytes[i] == '\n') {
+                    int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                    client.addReply(validate(new String(bytes, start, end - start, StandardCharsets.US_ASCII)));
+                    count++;
+                    start = i + 1;
+                }
+            }
+            input.limit(input.position()).position(start);
+            input.compact();
+            if (input.position() > MAX_LINE) {
+                client.addReply(reply("error Line too long"));
+                client.isEndOfInput = true;
+            }
+            return count;
+        }
+
+        /**
+         * Validates a request with the semantics of ChessBoard.move and ChessBoard.promotePawn.
+         * @param request "from to [promotion] fen".
+         * @return reply.
+         */
+        private ByteBuffer validate(String request) {
+            int toStart = request.indexOf(' ') + 1;
+            int fenStart = toStart > 0 ? request.indexOf(' ', toStart) + 1 : 0;
+            if (fenStart == 0) {
+                return reply("error Invalid request");
+            }
+            String from = request.substring(0, toStart - 1);
+            String to = request.substring(toStart, fenStart - 1);
+            String promotion = null;
+            if (request.indexOf(' ', fenStart) == fenStart + 1) {
+                promotion = request.substring(fenStart, fenStart + 1);
+                fenStart += 2;
+            }
+            String fen = request.substring(fenStart);
+            try {
+                if (!fen.equals(loadedFen)) {
+                    loadedFen = null;
+                    chessBoard.load(fen);
+                    loadedFen = fen;
+                }
+            } catch (RuntimeException e) {
+                return reply("error " + e.getMessage());
+            }
+            if (!isFileRank(from) || !isFileRank(to)) {
+                return ILLEGAL_REPLY.duplicate();
+            }
+            String turn = chessBoard.getPosition().getSideToMove() == Position.WHITE
+                    ? ChessBoard.WHITE_KIND : ChessBoard.BLACK_KIND;
+            boolean isValid;
+            try {
+                isValid = promotion == null ? chessBoard.move(from, to, turn)
+                        : chessBoard.promotePawn(from, to, turn, promotion);
+            } catch (RuntimeException e) {
+                loadedFen = null;
+                return reply("error " + e);
+            }
+            if (isValid) {
+                //take the move back so that the next request on this position does not load it again.
+                chessBoard.unmakeMove();
+                Object occupant = chessBoard.getPiece(Position.square(from));
+                if (occupant instanceof Pawn) {
+                    ((Pawn) occupant).setPromotion("Q");
+                }
+            }
+            return (isValid ? OK_REPLY : ILLEGAL_REPLY).duplicate();
+        }
+
+        private void closeQuietly(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                //already closed.
+            }
+        }
+    }
+
+    private static boolean isFileRank(String fileRank) {
+        return fileRank.length() == 2 && fileRank.charAt(0) >= 'a' && fileRank.charAt(0) <= 'h'
+                && fileRank.charAt(1) >= '1' && fileRank.charAt(1) <= '8';
+    }
+
+    /**
+     * Usage: ValidationServer [port [event loops]]
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int loopCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        try (ValidationServer server = new ValidationServer(port, loopCount)) {
+            System.out.println("Validation server listening on port " + server.getPort());
+            server.serve();
+        }
+    }
+}